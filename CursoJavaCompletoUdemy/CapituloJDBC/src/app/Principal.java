@@ -74,8 +74,14 @@ public class Principal {
             sellerDao.update(newSeller);
             System.out.println(sellerDao.findById(newSeller.getId()));
 
+            System.out.println("\n=== seller.upsert ===");
+            Seller sameEmail = new Seller(null, "Grag Upsert", newSeller.getEmail(), new Date(), 4000.0,
+                    seller.getDepartment());
+            System.out.println("Inserted: " + sellerDao.upsert(sameEmail));
+            System.out.println(sellerDao.findById(sameEmail.getId()));
+
             System.out.println("\n=== seller.delete ===");
-            sellerDao.deleteById(1000);
+            sellerDao.deleteById(newSeller.getId());
             System.out.println(sellerDao.findById(newSeller.getId()));
         }
 
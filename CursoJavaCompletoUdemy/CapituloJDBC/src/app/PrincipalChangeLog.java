@@ -0,0 +1,49 @@
+package app;
+
+import db.DB;
+import java.nio.file.Paths;
+import java.util.Scanner;
+import model.dao.DaoFactory;
+import model.dao.changelog.ChangeEvent;
+import model.dao.changelog.ChangeListener;
+import model.dao.changelog.ChangeLogTailer;
+import model.dao.changelog.FilePositionStore;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Prints the changes made to sellers and departments, resuming from the
+ * position saved in a file by the previous run.
+ *
+ * Usage: PrincipalChangeLog [positionFile]
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class PrincipalChangeLog {
+
+    public static void main(String[] args) {
+        String positionFile = args.length > 0 ? args[0] : "changelog.position";
+        ChangeLogTailer tailer = DaoFactory.factoryChangeLogTailer(new FilePositionStore(Paths.get(positionFile)));
+
+        tailer.start(new ChangeListener() {
+            @Override
+            public void onSellerChange(ChangeEvent<Seller> event) {
+                System.out.println(event);
+            }
+
+            @Override
+            public void onDepartmentChange(ChangeEvent<Department> event) {
+                System.out.println(event);
+            }
+        }, 1000);
+
+        System.out.println("Tailing the change log, press Enter to stop");
+        new Scanner(System.in).nextLine();
+
+        tailer.close();
+        System.out.println(tailer);
+        DaoFactory.close();
+        DB.closeConnection();
+    }
+
+}
@@ -1,7 +1,6 @@
 package app;
 
 import db.DB;
-import db.DbException;
 import db.DbIntegrityException;
 import java.sql.Connection;
 import java.sql.Date;
@@ -66,7 +65,7 @@ public class PrincipalDB {
             System.out.println("Fechar coisos");
 
             DB.closeStatement(st);
-            DB.closeConnection();
+            DB.closeConnection(conn);
         }
     }
 
@@ -113,7 +112,7 @@ public class PrincipalDB {
         } finally {
             DB.closeResultSet(rs);
             DB.closeStatement(st);
-            DB.closeConnection();
+            DB.closeConnection(conn);
         }
     }
 
@@ -135,7 +134,7 @@ public class PrincipalDB {
         } finally {
             DB.closeResultSet(rs);
             DB.closeStatement(st);
-            DB.closeConnection();
+            DB.closeConnection(conn);
         }
 
     }
@@ -157,46 +156,34 @@ public class PrincipalDB {
 
             System.out.println("Done! Rows affected: " + rowsAffected);
         } catch (SQLException e) {
-            throw new DbIntegrityException(e.getMessage());
+            throw new DbIntegrityException(e.getMessage(), e);
         } finally {
             DB.closeStatement(st);
-            DB.closeConnection();
+            DB.closeConnection(conn);
         }
     }
 
     private static void mainTransactions(String[] args) {
-        Connection conn = null;
-        Statement st = null;
-        try {
-            conn = DB.getConnection();
-
-            conn.setAutoCommit(false);
-
-            st = conn.createStatement();
-
-            int rows1 = st.executeUpdate("UPDATE seller SET BaseSalary = 2090 WHERE DepartmentId = 1");
+        DB.inTransaction(conn -> {
+            Statement st = null;
+            try {
+                st = conn.createStatement();
 
-            //int x = 1;
-            //if (x < 2) {
-            //	throw new SQLException("Fake error");
-            //}
-            int rows2 = st.executeUpdate("UPDATE seller SET BaseSalary = 3090 WHERE DepartmentId = 2");
+                int rows1 = st.executeUpdate("UPDATE seller SET BaseSalary = 2090 WHERE DepartmentId = 1");
 
-            conn.commit();
+                //int x = 1;
+                //if (x < 2) {
+                //	throw new SQLException("Fake error");
+                //}
+                int rows2 = st.executeUpdate("UPDATE seller SET BaseSalary = 3090 WHERE DepartmentId = 2");
 
-            System.out.println("rows1 = " + rows1);
-            System.out.println("rows2 = " + rows2);
-        } catch (SQLException e) {
-            try {
-                conn.rollback();
-                throw new DbException("Transaction rolled back! Caused by: " + e.getMessage());
-            } catch (SQLException e1) {
-                throw new DbException("Error trying to rollback! Caused by: " + e1.getMessage());
+                System.out.println("rows1 = " + rows1);
+                System.out.println("rows2 = " + rows2);
+                return null;
+            } finally {
+                DB.closeStatement(st);
             }
-        } finally {
-            DB.closeStatement(st);
-            DB.closeConnection();
-        }
+        });
     }
 
 }
@@ -0,0 +1,41 @@
+package app;
+
+import db.DB;
+import java.nio.file.Paths;
+import model.dao.DaoFactory;
+import model.dao.load.LoadResult;
+import model.dao.load.SellerCsvLoader;
+
+/**
+ * Loads a CSV file of sellers (Name,Email,BirthDate,BaseSalary,Department,
+ * with a header line) into the database.
+ *
+ * Usage: PrincipalLoadCsv file.csv
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class PrincipalLoadCsv {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: PrincipalLoadCsv file.csv");
+            return;
+        }
+
+        SellerCsvLoader loader = DaoFactory.factorySellerCsvLoader();
+        loader.setProgressListener(progress -> System.out.printf("%,d rows written (%.0f rows/s)%n",
+                progress.getRowsWritten(), progress.getRowsPerSecond()));
+
+        try {
+            LoadResult result = loader.load(Paths.get(args[0]));
+            System.out.println(result);
+            for (String error : result.getErrors()) {
+                System.out.println(error);
+            }
+        } finally {
+            DaoFactory.close();
+            DB.closeConnection();
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections.
+ *
+ * Connections are borrowed with {@link #borrow()} and given back by calling
+ * {@code close()} on the returned handle (or {@link DB#closeConnection(Connection)}).
+ * The pool is configured by the {@code pool.*} keys of banco.properties:
+ * <ul>
+ * <li>pool.maxSize - maximum number of physical connections (default 8)</li>
+ * <li>pool.borrowTimeoutMs - how long {@code borrow()} waits for a free
+ * connection (default 30000)</li>
+ * <li>pool.validationTimeoutSec - timeout of the validation done on borrow;
+ * 0 disables validation (default 2)</li>
+ * <li>pool.idleTimeoutMs - idle connections older than this are closed
+ * (default 600000)</li>
+ * <li>pool.leakDetectionThresholdMs - connections borrowed for longer than
+ * this are reported with the stack of the borrower; 0 disables (default 0)</li>
+ * <li>pool.statementCacheSize - prepared statements cached per connection;
+ * 0 disables the cache (default 32)</li>
+ * </ul>
+ * A pool created for a lane (see {@link DB#getReadPool()}) reads
+ * {@code pool.<lane>.*} first and falls back to these keys. Every new
+ * connection gets the SQLite pragmas of {@link SqlitePragmas}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final Properties props;
+    private final String lane;
+    private final ConnectionPool writePool;
+    private final SqlitePragmas pragmas;
+
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final int validationTimeoutSec;
+    private final long idleTimeoutMs;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong retiredStatementHits = new AtomicLong();
+    private final AtomicLong retiredStatementMisses = new AtomicLong();
+    private final AtomicLong retiredStatementEvictions = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile QueryMetrics queryMetrics;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(Properties props) {
+        this(props, null, null);
+    }
+
+    /**
+     * @param lane name of the pool.&lt;lane&gt;.* keys that override the
+     * pool.* ones, or null
+     * @param writePool when not null, this pool is a read-only lane of
+     * writePool: its connections reject writes, and inside a transaction of
+     * writePool {@link #borrow()} returns the transaction's connection, so the
+     * reads see its uncommitted changes
+     */
+    public ConnectionPool(Properties props, String lane, ConnectionPool writePool) {
+        this.props = props;
+        this.url = props.getProperty("dburl");
+        this.lane = lane;
+        this.writePool = writePool;
+        this.pragmas = new SqlitePragmas(props);
+
+        maxSize = Integer.parseInt(setting("maxSize", "8"));
+        borrowTimeoutMs = Long.parseLong(setting("borrowTimeoutMs", "30000"));
+        validationTimeoutSec = Integer.parseInt(setting("validationTimeoutSec", "2"));
+        idleTimeoutMs = Long.parseLong(setting("idleTimeoutMs", "600000"));
+        leakDetectionThresholdMs = Long.parseLong(setting("leakDetectionThresholdMs", "0"));
+        statementCacheSize = Integer.parseInt(setting("statementCacheSize", "32"));
+
+        if (maxSize < 1) {
+            throw new DbException("pool.maxSize must be greater than zero");
+        }
+
+        permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, lane == null
+                    ? "ConnectionPool-housekeeper" : "ConnectionPool-" + lane + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMs,
+                leakDetectionThresholdMs > 0 ? leakDetectionThresholdMs : idleTimeoutMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to pool.borrowTimeoutMs for one to
+     * become free. Closing the returned connection gives it back to the pool.
+     */
+    public Connection borrow() {
+        if (closed) {
+            throw new DbException("Connection pool is closed");
+        }
+
+        Connection bound = Transactions.boundConnection(writePool != null ? writePool : this);
+        if (bound != null) {
+            return bound;
+        }
+
+        QueryMetrics metrics = queryMetrics;
+        long waitStart = metrics != null && metrics.isWaitRecorded() ? System.nanoTime() : 0L;
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new DbException("Timeout after " + borrowTimeoutMs
+                        + "ms waiting for a connection (pool.maxSize=" + maxSize + ")");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while waiting for a connection");
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isValid(pc)) {
+                    break;
+                }
+                destroy(pc);
+            }
+            if (pc == null) {
+                pc = create();
+            }
+
+            if (waitStart != 0L) {
+                metrics.recordWait(System.nanoTime() - waitStart);
+            }
+            pc.markBorrowed(leakDetectionThresholdMs > 0);
+            borrowed.add(pc);
+            return pc.newHandle();
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones. Borrowed
+     * connections are closed as soon as they are given back.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+    }
+
+    /**
+     * @return the lane of this pool, or null
+     */
+    public String getLane() {
+        return lane;
+    }
+
+    /**
+     * @return the metrics statements of this pool report to, or null
+     */
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Statements prepared or created after this call report their executions
+     * to metrics while it is enabled. Null disables the instrumentation.
+     */
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    public boolean isReadOnly() {
+        return writePool != null;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    /**
+     * Prepared-statement cache counters summed over every connection the pool
+     * has opened.
+     */
+    public StatementCacheStats getStatementCacheStats() {
+        long hits = retiredStatementHits.get();
+        long misses = retiredStatementMisses.get();
+        long evictions = retiredStatementEvictions.get();
+        int cached = 0;
+
+        List<PooledConnection> live = new ArrayList<>(idle);
+        live.addAll(borrowed);
+        for (PooledConnection pc : live) {
+            StatementCache cache = pc.getStatementCache();
+            hits += cache.getHits();
+            misses += cache.getMisses();
+            evictions += cache.getEvictions();
+            cached += cache.size();
+        }
+
+        return new StatementCacheStats(hits, misses, evictions, cached);
+    }
+
+    void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        try {
+            if (closed || !pc.reset()) {
+                destroy(pc);
+            } else {
+                idle.offerFirst(pc);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection create() {
+        try {
+            Connection conn = DriverManager.getConnection(url, props);
+            try {
+                pragmas.apply(conn, isReadOnly());
+            } catch (SQLException ex) {
+                conn.close();
+                throw ex;
+            }
+            totalConnections.incrementAndGet();
+            return new PooledConnection(this, conn, statementCacheSize);
+        } catch (SQLException ex) {
+            throw DbException.from(ex);
+        }
+    }
+
+    private String setting(String key, String defaultValue) {
+        String value = lane == null ? null : props.getProperty("pool." + lane + "." + key);
+        return value != null ? value : props.getProperty("pool." + key, defaultValue);
+    }
+
+    private void destroy(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        StatementCache cache = pc.getStatementCache();
+        retiredStatementHits.addAndGet(cache.getHits());
+        retiredStatementMisses.addAndGet(cache.getMisses());
+        retiredStatementEvictions.addAndGet(cache.getEvictions());
+        pc.closePhysical();
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        if (validationTimeoutSec <= 0) {
+            return true;
+        }
+        try {
+            return pc.getPhysical().isValid(validationTimeoutSec);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pc = it.next();
+            if (now - pc.getLastUsed() > idleTimeoutMs && idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+
+        if (leakDetectionThresholdMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (now - pc.getBorrowedAt() > leakDetectionThresholdMs && pc.markLeakReported()) {
+                    ErrorLog.error("Connection leak detection: connection borrowed "
+                            + (now - pc.getBorrowedAt()) + "ms ago was not returned", pc.getBorrowStack());
+                }
+            }
+        }
+    }
+
+}
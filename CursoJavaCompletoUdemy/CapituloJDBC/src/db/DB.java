@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -16,36 +15,122 @@ import java.util.Properties;
  */
 public class DB {
 
-    private static Connection conn = null;
+    private static ConnectionPool pool = null;
+    private static ConnectionPool readPool = null;
+    private static Properties props = null;
+    private static QueryMetrics queryMetrics = null;
 
-    public static Connection getConnection() {
-        if (conn == null) {
-            try {
-                Properties props = loadProperties();
-                String url = props.getProperty("dburl");
-                System.out.printf("Open database: %s%n", url);
+    public static synchronized Properties getProperties() {
+        if (props == null) {
+            props = loadProperties();
+            ErrorLog.configure(props);
+        }
+        return props;
+    }
 
-                conn = DriverManager.getConnection(url, props);
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-                throw new DbException(ex.getMessage());
+    /**
+     * Pool used for writes and transactions. With pool.readWriteSplit=true it
+     * is the "write" lane, configured by pool.write.* (usually a single
+     * connection, so writers queue in the pool instead of fighting for the
+     * SQLite lock).
+     */
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            System.out.printf("Open database: %s%n", getProperties().getProperty("dburl"));
+
+            pool = new ConnectionPool(getProperties(), isReadWriteSplit() ? "write" : null, null);
+            pool.setQueryMetrics(getQueryMetrics());
+        }
+
+        return pool;
+    }
+
+    /**
+     * Pool used for queries. With pool.readWriteSplit=true it is a read-only
+     * "read" lane, configured by pool.read.*, whose connections read
+     * concurrently with the writer when sqlite.journalMode=WAL. Otherwise it
+     * is the same pool returned by {@link #getPool()}.
+     */
+    public static synchronized ConnectionPool getReadPool() {
+        if (!isReadWriteSplit()) {
+            return getPool();
+        }
+        if (readPool == null) {
+            readPool = new ConnectionPool(getProperties(), "read", getPool());
+            readPool.setQueryMetrics(getQueryMetrics());
+        }
+
+        return readPool;
+    }
+
+    /**
+     * Metrics shared by both pools, configured by the metrics.* keys (see
+     * {@link QueryMetrics}). They can be turned on at runtime with
+     * {@code setEnabled(true)}, also through JMX when metrics.jmx=true.
+     */
+    public static synchronized QueryMetrics getQueryMetrics() {
+        if (queryMetrics == null) {
+            queryMetrics = new QueryMetrics(getProperties());
+            if (Boolean.parseBoolean(getProperties().getProperty("metrics.jmx", "true"))) {
+                queryMetrics.registerMBean();
             }
         }
+        return queryMetrics;
+    }
+
+    private static boolean isReadWriteSplit() {
+        return Boolean.parseBoolean(getProperties().getProperty("pool.readWriteSplit", "false"));
+    }
+
+    /**
+     * Borrows a connection from the pool. It must be given back with
+     * {@link #closeConnection(Connection)}.
+     */
+    public static Connection getConnection() {
+        return getPool().borrow();
+    }
 
-        return conn;
+    /**
+     * Runs the work in a transaction of the default pool, retrying it when
+     * the database is busy. See {@link Transactions}.
+     */
+    public static <T> T inTransaction(TransactionWork<T> work) {
+        return inTransaction(new TransactionOptions(getProperties()), work);
     }
 
-    public static void closeConnection() {
+    public static <T> T inTransaction(TransactionOptions options, TransactionWork<T> work) {
+        return Transactions.run(getPool(), options, work);
+    }
+
+    /**
+     * Gives the connection back. Like closeStatement and closeResultSet, it
+     * reports failures to {@link ErrorLog} instead of throwing them, since it
+     * runs in finally blocks where it would hide the original failure.
+     */
+    public static void closeConnection(Connection conn) {
         if (conn != null) {
             try {
                 conn.close();
             } catch (SQLException ex) {
-                ex.printStackTrace();
-                throw new DbException(ex.getMessage());
+                ErrorLog.error("Could not close the connection", ex);
             }
         }
     }
 
+    /**
+     * Closes the pools and every connection they hold.
+     */
+    public static synchronized void closeConnection() {
+        if (readPool != null) {
+            readPool.close();
+            readPool = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
     private static Properties loadProperties() {
         File file = new File("../banco/banco.properties");
         System.out.printf("Open file: %s%n", file.getAbsoluteFile());
@@ -54,8 +139,7 @@ public class DB {
             props.load(fs);
             return props;
         } catch (IOException ex) {
-            ex.printStackTrace();
-            throw new DbException(ex.getMessage());
+            throw new DbException(ex.getMessage(), ex);
         }
     }
 
@@ -64,8 +148,7 @@ public class DB {
             try {
                 st.close();
             } catch (SQLException ex) {
-                ex.printStackTrace();
-                throw new DbException(ex.getMessage());
+                ErrorLog.error("Could not close the statement", ex);
             }
         }
     }
@@ -75,8 +158,7 @@ public class DB {
             try {
                 rs.close();
             } catch (SQLException ex) {
-                ex.printStackTrace();
-                throw new DbException(ex.getMessage());
+                ErrorLog.error("Could not close the result set", ex);
             }
         }
     }
@@ -1,13 +1,129 @@
 package db;
 
+import java.sql.SQLException;
+
 /**
+ * Failure of a database operation.
+ *
+ * When it wraps a {@link SQLException} it keeps it as the cause, together
+ * with its SQLState and vendor error code, and does not fill a stack trace
+ * of its own: the stack of the cause already ends in the DAO call that
+ * failed, and skipping it keeps error storms cheap. Use {@link #from} to
+ * get a {@link DbIntegrityException} for constraint violations.
  *
  * @author Alisson Chiquitto <chiquitto@gmail.com>
  */
 public class DbException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
+    private final String sqlState;
+    private final int errorCode;
+
     public DbException(String string) {
         super(string);
+        this.sqlState = null;
+        this.errorCode = 0;
+    }
+
+    public DbException(String string, Throwable cause) {
+        super(string, cause);
+        SQLException sqlEx = sqlException(cause);
+        this.sqlState = sqlEx == null ? null : sqlEx.getSQLState();
+        this.errorCode = sqlEx == null ? 0 : sqlEx.getErrorCode();
+    }
+
+    public DbException(SQLException cause) {
+        this(cause.getMessage(), cause);
+    }
+
+    public DbException(String string, SQLException cause) {
+        super(string, cause, true, false);
+        this.sqlState = cause.getSQLState();
+        this.errorCode = cause.getErrorCode();
+    }
+
+    /**
+     * @return a {@link DbIntegrityException} when ex is a constraint
+     * violation, otherwise a DbException, both with ex's message
+     */
+    public static DbException from(SQLException ex) {
+        return from(ex.getMessage(), ex);
+    }
+
+    public static DbException from(String message, SQLException ex) {
+        return isIntegrityViolation(ex) ? new DbIntegrityException(message, ex) : new DbException(message, ex);
     }
-    
+
+    /**
+     * @return SQLState of the SQLException that caused this failure, or null
+     */
+    public String getSqlState() {
+        return sqlState;
+    }
+
+    /**
+     * @return vendor error code of the SQLException that caused this failure
+     * (for SQLite, the primary result code such as 5 for SQLITE_BUSY), or 0
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return true when running the operation again may succeed, see
+     * {@link #isRetryable(Throwable)}
+     */
+    public boolean isRetryable() {
+        return isRetryable(this);
+    }
+
+    /**
+     * Busy or locked database, deadlock or serialization failure, looking at
+     * the whole cause chain. Any other failure is fatal: repeating the
+     * operation fails the same way.
+     */
+    public static boolean isRetryable(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                SQLException sqlEx = (SQLException) t;
+                int code = sqlEx.getErrorCode();
+                if (code == 5 || code == 6) {
+                    return true;
+                }
+                if (sqlEx.getSQLState() != null && sqlEx.getSQLState().startsWith("40")) {
+                    return true;
+                }
+            }
+
+            String message = t.getMessage();
+            if (message != null && (message.contains("SQLITE_BUSY") || message.contains("SQLITE_LOCKED")
+                    || message.contains("database is locked"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unique, foreign key, not null or check constraint violated: SQLState
+     * class 23 or SQLITE_CONSTRAINT.
+     */
+    public static boolean isIntegrityViolation(SQLException ex) {
+        if (ex.getSQLState() != null && ex.getSQLState().startsWith("23")) {
+            return true;
+        }
+        return ex.getErrorCode() == 19
+                || (ex.getMessage() != null && ex.getMessage().contains("SQLITE_CONSTRAINT"));
+    }
+
+    private static SQLException sqlException(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                return (SQLException) t;
+            }
+        }
+        return null;
+    }
+
 }
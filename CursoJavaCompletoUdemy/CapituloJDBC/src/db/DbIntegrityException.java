@@ -1,13 +1,21 @@
 package db;
 
+import java.sql.SQLException;
+
 /**
+ * Constraint violation: the operation is fatal and fails again until the
+ * data is fixed. See {@link DbException#from(SQLException)}.
  *
  * @author Alisson Chiquitto <chiquitto@gmail.com>
  */
-public class DbIntegrityException extends RuntimeException {
+public class DbIntegrityException extends DbException {
 	private static final long serialVersionUID = 1L;
 
 	public DbIntegrityException(String msg) {
 		super(msg);
 	}
+
+	public DbIntegrityException(String msg, SQLException cause) {
+		super(msg, cause);
+	}
 }
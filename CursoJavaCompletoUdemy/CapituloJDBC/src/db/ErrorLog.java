@@ -0,0 +1,212 @@
+package db;
+
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous, rate-limited log of errors the database layer can not throw,
+ * such as failures to close a statement or a connection, and of warnings
+ * such as slow queries.
+ *
+ * {@link #error} and {@link #warn} only enqueue the entry and return; a
+ * daemon thread writes it to System.err. At most errorlog.maxPerSecond
+ * entries are accepted per second (default 10) and at most
+ * errorlog.queueCapacity wait to be written (default 1000). Entries over the
+ * limit are counted, not allocated, and the count is written before the next
+ * accepted entry, so a database outage can not turn into threads queuing on
+ * the console.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class ErrorLog {
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    private static volatile int maxPerSecond = 10;
+    private static volatile BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(1000);
+    private static volatile PrintStream out = System.err;
+
+    private static final AtomicLong currentSecond = new AtomicLong();
+    private static final AtomicInteger acceptedInSecond = new AtomicInteger();
+    private static final AtomicLong suppressedSinceLastEntry = new AtomicLong();
+    private static final LongAdder logged = new LongAdder();
+    private static final LongAdder suppressed = new LongAdder();
+
+    private static Thread writer;
+
+    private ErrorLog() {
+    }
+
+    /**
+     * Applies the errorlog.* keys. When the capacity changes, the entries
+     * already queued move to the new queue; those that do not fit are
+     * counted as suppressed.
+     */
+    public static synchronized void configure(Properties props) {
+        maxPerSecond = Integer.parseInt(props.getProperty("errorlog.maxPerSecond", "10"));
+        int capacity = Integer.parseInt(props.getProperty("errorlog.queueCapacity", "1000"));
+        BlockingQueue<Entry> old = queue;
+        if (capacity != old.size() + old.remainingCapacity()) {
+            queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            if (writer != null) {
+                writer.interrupt();
+                writer = null;
+            }
+            moveAll(old);
+        }
+    }
+
+    /**
+     * Where the entries are written, System.err by default.
+     */
+    public static void setOut(PrintStream out) {
+        ErrorLog.out = out;
+    }
+
+    public static void error(String message, Throwable ex) {
+        log("ERROR", message, ex, null);
+    }
+
+    public static void warn(String message) {
+        log("WARN", message, null, null);
+    }
+
+    /**
+     * Like {@link #warn(String)}, but the entry is written to target instead
+     * of the log output, still by the writer thread.
+     */
+    static void warn(PrintStream target, String message) {
+        log("WARN", message, null, target);
+    }
+
+    private static void log(String level, String message, Throwable ex, PrintStream target) {
+        if (!acquire()) {
+            suppressed.increment();
+            suppressedSinceLastEntry.incrementAndGet();
+            return;
+        }
+
+        long skipped = suppressedSinceLastEntry.getAndSet(0);
+        Entry entry = new Entry(System.currentTimeMillis(), level, Thread.currentThread().getName(), message, ex,
+                skipped, target);
+        if (queue.offer(entry)) {
+            ensureWriter();
+        } else {
+            suppressed.increment();
+            suppressedSinceLastEntry.addAndGet(skipped + 1);
+        }
+    }
+
+    /**
+     * @return entries written so far
+     */
+    public static long getLogged() {
+        return logged.sum();
+    }
+
+    /**
+     * @return entries dropped by the rate limit or because the queue was full
+     */
+    public static long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    private static boolean acquire() {
+        int max = maxPerSecond;
+        if (max <= 0) {
+            return true;
+        }
+
+        long second = System.currentTimeMillis() / 1000;
+        long current = currentSecond.get();
+        if (second != current && currentSecond.compareAndSet(current, second)) {
+            acceptedInSecond.set(0);
+        }
+        return acceptedInSecond.incrementAndGet() <= max;
+    }
+
+    /**
+     * Moves the entries left in a replaced queue to the current one.
+     */
+    private static void moveAll(BlockingQueue<Entry> source) {
+        BlockingQueue<Entry> target = queue;
+        if (source == target) {
+            return;
+        }
+        Entry entry;
+        while ((entry = source.poll()) != null) {
+            if (!target.offer(entry)) {
+                suppressed.increment();
+                suppressedSinceLastEntry.incrementAndGet();
+            }
+        }
+        if (!target.isEmpty()) {
+            ensureWriter();
+        }
+    }
+
+    private static synchronized void ensureWriter() {
+        if (writer != null) {
+            return;
+        }
+        BlockingQueue<Entry> source = queue;
+        writer = new Thread(() -> write(source), "db-error-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void write(BlockingQueue<Entry> source) {
+        SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+        try {
+            while (true) {
+                Entry entry = source.take();
+                PrintStream stream = entry.target != null ? entry.target : out;
+
+                if (entry.suppressedBefore > 0) {
+                    out.printf("%s WARN %d entries suppressed%n", format.format(new Date(entry.time)),
+                            entry.suppressedBefore);
+                }
+                stream.printf("%s %s [%s] %s%n", format.format(new Date(entry.time)), entry.level, entry.thread,
+                        entry.message);
+                if (entry.ex != null) {
+                    entry.ex.printStackTrace(stream);
+                }
+                logged.increment();
+            }
+        } catch (InterruptedException ex) {
+            // replaced by configure(); entries queued since it moved them
+            // are moved now
+            moveAll(source);
+        }
+    }
+
+    private static class Entry {
+
+        private final long time;
+        private final String level;
+        private final String thread;
+        private final String message;
+        private final Throwable ex;
+        private final long suppressedBefore;
+        private final PrintStream target;
+
+        Entry(long time, String level, String thread, String message, Throwable ex, long suppressedBefore,
+                PrintStream target) {
+            this.time = time;
+            this.level = level;
+            this.thread = thread;
+            this.message = message;
+            this.ex = ex;
+            this.suppressedBefore = suppressedBefore;
+            this.target = target;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Proxy of a statement that reports every execution to {@link QueryMetrics}.
+ *
+ * Updates and batches are recorded when they return, with the number of rows
+ * they changed. A query is recorded when its ResultSet is closed (or the
+ * statement is closed or executed again), with the rows read and the time
+ * spent in executeQuery() plus every next(), since SQLite does most of the
+ * work of a query while stepping through the rows. Time the caller spends
+ * between two next() calls is not counted.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class InstrumentedStatement implements InvocationHandler {
+
+    private final Statement target;
+    private final String sql;
+    private final QueryMetrics metrics;
+
+    private Query open;
+
+    private InstrumentedStatement(Statement target, String sql, QueryMetrics metrics) {
+        this.target = target;
+        this.sql = sql;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param sql the SQL of a prepared statement, or null for a plain
+     * statement, whose SQL is taken from each execute call
+     */
+    static <T extends Statement> T wrap(T target, String sql, QueryMetrics metrics) {
+        Class<?> type = target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        @SuppressWarnings("unchecked")
+        T proxy = (T) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{type},
+                new InstrumentedStatement(target, sql, metrics));
+        return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+
+        if ("close".equals(name)) {
+            finishQuery();
+            return invokeTarget(target, method, args);
+        }
+        if ("executeQuery".equals(name)) {
+            finishQuery();
+            return executeQuery(method, args);
+        }
+        if ("getResultSet".equals(name)) {
+            ResultSet rs = (ResultSet) invokeTarget(target, method, args);
+            return rs == null || open == null ? rs : open.wrap(rs);
+        }
+        if (!name.startsWith("execute")) {
+            return invokeTarget(target, method, args);
+        }
+
+        finishQuery();
+        String text = sqlOf(args);
+        long start = System.nanoTime();
+        boolean error = true;
+        long rows = 0;
+        try {
+            Object result = invokeTarget(target, method, args);
+            error = false;
+            if (result instanceof Boolean) {
+                if ((Boolean) result) {
+                    // execute() opened a ResultSet, recorded like executeQuery()
+                    open = new Query(text, System.nanoTime() - start);
+                    return result;
+                }
+                rows = Math.max(0, target.getUpdateCount());
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof Number) {
+                rows = ((Number) result).longValue();
+            }
+            return result;
+        } finally {
+            if (open == null || error) {
+                metrics.record(text, System.nanoTime() - start, rows, error);
+            }
+        }
+    }
+
+    private Object executeQuery(Method method, Object[] args) throws Throwable {
+        String text = sqlOf(args);
+        long start = System.nanoTime();
+        try {
+            ResultSet rs = (ResultSet) invokeTarget(target, method, args);
+            open = new Query(text, System.nanoTime() - start);
+            return open.wrap(rs);
+        } catch (Throwable ex) {
+            metrics.record(text, System.nanoTime() - start, 0, true);
+            throw ex;
+        }
+    }
+
+    private void finishQuery() {
+        if (open != null) {
+            Query query = open;
+            open = null;
+            metrics.record(query.sql, query.nanos, query.rows, query.error);
+        }
+    }
+
+    private String sqlOf(Object[] args) {
+        if (sql != null) {
+            return sql;
+        }
+        return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "(batch)";
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Query whose ResultSet is still open.
+     */
+    private class Query {
+
+        private final String sql;
+        private long nanos;
+        private long rows;
+        private boolean error;
+
+        Query(String sql, long nanos) {
+            this.sql = sql;
+            this.nanos = nanos;
+        }
+
+        ResultSet wrap(ResultSet rs) {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if ("next".equals(name)) {
+                            long start = System.nanoTime();
+                            try {
+                                boolean more = (Boolean) invokeTarget(rs, method, args);
+                                if (more) {
+                                    rows++;
+                                }
+                                return more;
+                            } catch (Throwable ex) {
+                                error = true;
+                                throw ex;
+                            } finally {
+                                nanos += System.nanoTime() - start;
+                            }
+                        }
+                        if ("close".equals(name) && open == this) {
+                            finishQuery();
+                        }
+                        return invokeTarget(rs, method, args);
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Physical connection kept by {@link ConnectionPool}.
+ *
+ * Every borrow gets a new handle (a proxy of {@link Connection}) so a handle
+ * that was already closed can not touch the connection after it has been
+ * borrowed again by someone else.
+ *
+ * The connection owns a {@link StatementCache}: {@code prepareStatement(sql)}
+ * and {@code prepareStatement(sql, autoGeneratedKeys)} called on a handle
+ * reuse statements prepared by earlier borrowers. When the pool has enabled
+ * {@link QueryMetrics}, the statements handed out are instrumented.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final StatementCache statementCache;
+
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile long borrowedAt;
+    private volatile Throwable borrowStack;
+    private volatile boolean leakReported;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCache = new StatementCache(physical, statementCacheSize);
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowStack() {
+        return borrowStack;
+    }
+
+    void markBorrowed(boolean captureStack) {
+        borrowedAt = System.currentTimeMillis();
+        borrowStack = captureStack ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+    }
+
+    /**
+     * @return true the first time it is called after a borrow
+     */
+    synchronized boolean markLeakReported() {
+        if (leakReported) {
+            return false;
+        }
+        leakReported = true;
+        return true;
+    }
+
+    /**
+     * Puts the connection back in its default state before it returns to the
+     * idle list.
+     *
+     * @return false when the connection is not reusable anymore
+     */
+    boolean reset() {
+        lastUsed = System.currentTimeMillis();
+        borrowStack = null;
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            statementCache.releaseAll();
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        statementCache.closeAll();
+        try {
+            physical.close();
+        } catch (SQLException ex) {
+            ErrorLog.error("Could not close a pooled connection", ex);
+        }
+    }
+
+    Connection newHandle() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle());
+    }
+
+    private class Handle implements InvocationHandler {
+
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if ("close".equals(name)) {
+                if (!closed) {
+                    closed = true;
+                    pool.release(PooledConnection.this);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed || physical.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Pooled" + physical;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            if ("prepareStatement".equals(name) && args.length <= 2) {
+                if (args.length == 1) {
+                    return instrument(statementCache.prepare((String) args[0], Statement.NO_GENERATED_KEYS), args);
+                }
+                if (method.getParameterTypes()[1] == int.class) {
+                    return instrument(statementCache.prepare((String) args[0], (Integer) args[1]), args);
+                }
+            }
+
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if ("prepareStatement".equals(name) || "createStatement".equals(name)) {
+                return instrument((Statement) result, args);
+            }
+            return result;
+        }
+
+        private Statement instrument(Statement st, Object[] args) {
+            QueryMetrics metrics = pool.getQueryMetrics();
+            if (metrics == null) {
+                return st;
+            }
+            return st instanceof PreparedStatement
+                    ? metrics.wrap((PreparedStatement) st, (String) args[0])
+                    : metrics.wrap(st);
+        }
+    }
+
+}
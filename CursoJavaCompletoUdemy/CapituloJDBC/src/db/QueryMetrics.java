@@ -0,0 +1,339 @@
+package db;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency, row counts and errors of every SQL run through a
+ * {@link ConnectionPool}, plus how long borrowers waited for a connection
+ * (including the time to open a new one).
+ *
+ * Configured by the {@code metrics.*} keys of banco.properties:
+ * <ul>
+ * <li>metrics.enabled - record anything at all (default false); when false,
+ * statements are not wrapped and the cost is one flag check per statement</li>
+ * <li>metrics.slowQueryMs - executions slower than this go to the slow query
+ * log; 0 disables the log (default 200)</li>
+ * <li>metrics.slowQueryLog - file of the slow query log, the {@link ErrorLog}
+ * output when empty; either way the entries are written by the ErrorLog
+ * thread and count in its rate limit</li>
+ * <li>metrics.jmx - register the {@link QueryMetricsMBean} (default true)</li>
+ * </ul>
+ * Latencies are kept in histograms of power-of-two microsecond buckets, so
+ * percentiles are approximate (up to 2x).
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class QueryMetrics implements QueryMetricsMBean {
+
+    private volatile boolean enabled;
+    private volatile long slowQueryThresholdNanos;
+    private final String slowQueryLogFile;
+
+    private final Map<String, Stats> queries = new ConcurrentHashMap<>();
+    private final Stats connectionWait = new Stats();
+    private final LongAdder slowQueries = new LongAdder();
+    private PrintStream slowQueryLog;
+
+    public QueryMetrics(Properties props) {
+        enabled = Boolean.parseBoolean(props.getProperty("metrics.enabled", "false"));
+        setSlowQueryThresholdMillis(Long.parseLong(props.getProperty("metrics.slowQueryMs", "200")));
+        String file = props.getProperty("metrics.slowQueryLog", "").trim();
+        slowQueryLogFile = file.isEmpty() ? null : file;
+    }
+
+    /**
+     * Registers this object as the {@code db:type=QueryMetrics} MBean,
+     * replacing any previous registration.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("db:type=QueryMetrics");
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException ex) {
+            throw new DbException(ex.getMessage(), ex);
+        }
+    }
+
+    PreparedStatement wrap(PreparedStatement st, String sql) {
+        return enabled ? InstrumentedStatement.wrap(st, sql, this) : st;
+    }
+
+    Statement wrap(Statement st) {
+        return enabled ? InstrumentedStatement.wrap(st, null, this) : st;
+    }
+
+    boolean isWaitRecorded() {
+        return enabled;
+    }
+
+    void recordWait(long nanos) {
+        connectionWait.record(nanos, 0, false);
+    }
+
+    void record(String sql, long nanos, long rows, boolean error) {
+        Stats stats = queries.get(sql);
+        if (stats == null) {
+            stats = queries.computeIfAbsent(sql, k -> new Stats());
+        }
+        stats.record(nanos, rows, error);
+
+        if (slowQueryThresholdNanos > 0 && nanos >= slowQueryThresholdNanos) {
+            slowQueries.increment();
+            logSlowQuery(sql, nanos, rows, error);
+        }
+    }
+
+    /**
+     * Hands the entry to the {@link ErrorLog} writer thread, so a slow query
+     * does not also wait for the console or the log file.
+     */
+    private void logSlowQuery(String sql, long nanos, long rows, boolean error) {
+        String message = String.format("slow query %.1fms rows=%d%s %s", nanos / 1e6, rows,
+                error ? " error" : "", sql);
+        if (slowQueryLogFile == null) {
+            ErrorLog.warn(message);
+        } else {
+            ErrorLog.warn(slowQueryLog(), message);
+        }
+    }
+
+    private synchronized PrintStream slowQueryLog() {
+        if (slowQueryLog == null) {
+            try {
+                slowQueryLog = new PrintStream(new FileOutputStream(slowQueryLogFile, true), true);
+            } catch (IOException ex) {
+                ErrorLog.error("Could not open the slow query log " + slowQueryLogFile, ex);
+                slowQueryLog = System.err;
+            }
+        }
+        return slowQueryLog;
+    }
+
+    /**
+     * @return the statistics of one SQL, or null if it never ran
+     */
+    public Stats get(String sql) {
+        return queries.get(sql);
+    }
+
+    public Map<String, Stats> getAll() {
+        return Collections.unmodifiableMap(queries);
+    }
+
+    public Stats getConnectionWait() {
+        return connectionWait;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdNanos / 1_000_000L;
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdNanos = slowQueryThresholdMillis * 1_000_000L;
+    }
+
+    @Override
+    public long getQueryCount() {
+        long total = 0;
+        for (Stats stats : queries.values()) {
+            total += stats.getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long total = 0;
+        for (Stats stats : queries.values()) {
+            total += stats.getErrors();
+        }
+        return total;
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public int getDistinctQueryCount() {
+        return queries.size();
+    }
+
+    @Override
+    public long getConnectionWaitCount() {
+        return connectionWait.getCount();
+    }
+
+    @Override
+    public double getConnectionWaitAverageMillis() {
+        return connectionWait.getAverageMillis();
+    }
+
+    @Override
+    public double getConnectionWaitMaxMillis() {
+        return connectionWait.getMaxMillis();
+    }
+
+    @Override
+    public double getConnectionWaitP99Millis() {
+        return connectionWait.getPercentileMillis(99);
+    }
+
+    @Override
+    public String[] getTopQueries() {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(queries.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().getTotalNanos(), a.getValue().getTotalNanos()));
+
+        String[] lines = new String[entries.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = entries.get(i).getValue() + " " + entries.get(i).getKey();
+        }
+        return lines;
+    }
+
+    @Override
+    public void reset() {
+        queries.clear();
+        connectionWait.reset();
+        slowQueries.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryMetrics{" + "enabled=" + enabled + ", queries=" + getQueryCount() + ", errors="
+                + getErrorCount() + ", slowQueries=" + getSlowQueryCount() + ", distinct=" + getDistinctQueryCount()
+                + ", connectionWait=" + connectionWait + '}';
+    }
+
+    /**
+     * Counters and latency histogram of one SQL.
+     */
+    public static class Stats {
+
+        private static final int BUCKETS = 40;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos, long rowCount, boolean error) {
+            count.increment();
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            if (error) {
+                errors.increment();
+            }
+            maxNanos.accumulateAndGet(nanos, Math::max);
+
+            long micros = nanos / 1000;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            histogram.incrementAndGet(bucket);
+        }
+
+        void reset() {
+            count.reset();
+            errors.reset();
+            rows.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public double getAverageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * @return upper bound of the histogram bucket holding the percentile
+         */
+        public double getPercentileMillis(double percentile) {
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = histogram.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0.0;
+            }
+
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min((1L << i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{count=%d, errors=%d, rows=%d, avgMs=%.3f, p50Ms=%.3f, p99Ms=%.3f, maxMs=%.3f}",
+                    getCount(), getErrors(), getRows(), getAverageMillis(), getPercentileMillis(50),
+                    getPercentileMillis(99), getMaxMillis());
+        }
+    }
+
+}
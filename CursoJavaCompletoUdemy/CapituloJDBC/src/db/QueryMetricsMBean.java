@@ -0,0 +1,41 @@
+package db;
+
+/**
+ * JMX view of {@link QueryMetrics}, registered as {@code db:type=QueryMetrics}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public interface QueryMetricsMBean {
+
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public long getSlowQueryThresholdMillis();
+
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis);
+
+    public long getQueryCount();
+
+    public long getErrorCount();
+
+    public long getSlowQueryCount();
+
+    public int getDistinctQueryCount();
+
+    public long getConnectionWaitCount();
+
+    public double getConnectionWaitAverageMillis();
+
+    public double getConnectionWaitMaxMillis();
+
+    public double getConnectionWaitP99Millis();
+
+    /**
+     * @return one line per SQL, the ones with the highest total time first
+     */
+    public String[] getTopQueries();
+
+    public void reset();
+
+}
@@ -0,0 +1,76 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * SQLite tuning applied to every connection opened by {@link ConnectionPool},
+ * read from the {@code sqlite.*} keys of banco.properties. A missing or empty
+ * key leaves the SQLite default:
+ * <ul>
+ * <li>sqlite.journalMode - PRAGMA journal_mode; WAL lets readers run while
+ * a writer is active</li>
+ * <li>sqlite.synchronous - PRAGMA synchronous; NORMAL is safe with WAL</li>
+ * <li>sqlite.mmapSize - PRAGMA mmap_size, in bytes</li>
+ * <li>sqlite.cacheSize - PRAGMA cache_size; negative values are KiB</li>
+ * <li>sqlite.busyTimeoutMs - PRAGMA busy_timeout</li>
+ * </ul>
+ * Nothing is applied when dburl is not an SQLite URL.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class SqlitePragmas {
+
+    private static final Pattern VALUE = Pattern.compile("-?[A-Za-z0-9_]+");
+
+    private final boolean sqlite;
+    private final Map<String, String> pragmas = new LinkedHashMap<>();
+
+    SqlitePragmas(Properties props) {
+        String url = props.getProperty("dburl", "");
+        sqlite = url.startsWith("jdbc:sqlite:");
+
+        // busy_timeout first, so changing the journal mode waits for other connections
+        add("busy_timeout", props.getProperty("sqlite.busyTimeoutMs"));
+        add("journal_mode", props.getProperty("sqlite.journalMode"));
+        add("synchronous", props.getProperty("sqlite.synchronous"));
+        add("mmap_size", props.getProperty("sqlite.mmapSize"));
+        add("cache_size", props.getProperty("sqlite.cacheSize"));
+    }
+
+    private void add(String pragma, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        value = value.trim();
+        if (!VALUE.matcher(value).matches()) {
+            throw new DbException("Invalid value for PRAGMA " + pragma + ": " + value);
+        }
+        pragmas.put(pragma, value);
+    }
+
+    /**
+     * @param readOnly also sets PRAGMA query_only, so the connection rejects
+     * any write
+     */
+    void apply(Connection conn, boolean readOnly) throws SQLException {
+        if (!sqlite) {
+            return;
+        }
+
+        try (Statement st = conn.createStatement()) {
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                st.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+            }
+            if (readOnly) {
+                st.execute("PRAGMA query_only = ON");
+            }
+        }
+    }
+
+}
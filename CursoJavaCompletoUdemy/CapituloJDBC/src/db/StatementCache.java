@@ -0,0 +1,274 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements owned by one {@link PooledConnection}.
+ *
+ * Statements are keyed by SQL text and generated-keys flag. Closing a cached
+ * statement closes the result sets it returned, clears its parameters and
+ * pending batch and leaves it in the cache to be reused by the next {@code prepareStatement} with the same key.
+ * If the same statement is requested while it is still in use, a plain
+ * uncached statement is returned.
+ *
+ * Every {@code prepareStatement} gets a new handle, so a handle closed twice
+ * or used after close can not touch the statement once it has been handed to
+ * someone else. Statements left open when the connection goes back to the
+ * pool are released by {@link #releaseAll()}. The map is guarded by the
+ * cache itself, so the pool can read its size from another thread.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    StatementCache(Connection physical, int maxSize) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+    }
+
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.borrow == null) {
+            hits.incrementAndGet();
+            return entry.lend();
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement ps = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null || maxSize <= 0) {
+            return ps;
+        }
+
+        entry = new Entry(ps);
+        entries.put(key, entry);
+
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            evictions.incrementAndGet();
+            eldest.evicted = true;
+            if (eldest.borrow == null) {
+                eldest.closePhysical();
+            }
+        }
+
+        return entry.lend();
+    }
+
+    /**
+     * Takes back the statements whose handles were not closed, so the next
+     * borrower of the connection can reuse them.
+     */
+    synchronized void releaseAll() {
+        for (Entry entry : entries.values()) {
+            if (entry.borrow != null) {
+                entry.release(entry.borrow);
+            }
+        }
+    }
+
+    synchronized void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.closePhysical();
+        }
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    private static class Key {
+
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return autoGeneratedKeys == other.autoGeneratedKeys && Objects.equals(sql, other.sql);
+        }
+    }
+
+    private class Entry {
+
+        private final PreparedStatement physical;
+        private volatile Borrow borrow;
+        private boolean evicted;
+
+        Entry(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement lend() {
+            borrow = new Borrow(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    borrow);
+        }
+
+        /**
+         * Called with the cache lock held.
+         */
+        void release(Borrow from) {
+            if (borrow != from) {
+                return;
+            }
+            borrow = null;
+            from.closeResultSets();
+            if (evicted) {
+                closePhysical();
+                return;
+            }
+            try {
+                physical.clearBatch();
+                physical.clearParameters();
+                physical.clearWarnings();
+            } catch (SQLException ex) {
+                ErrorLog.error("Could not reset a cached statement", ex);
+                entries.values().remove(this);
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException ex) {
+                ErrorLog.error("Could not close a cached statement", ex);
+            }
+        }
+    }
+
+    /**
+     * Handle of one {@code prepareStatement}.
+     */
+    private class Borrow implements InvocationHandler {
+
+        private final Entry entry;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private volatile boolean closed;
+
+        Borrow(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if ("close".equals(name)) {
+                if (!closed) {
+                    closed = true;
+                    synchronized (StatementCache.this) {
+                        entry.release(this);
+                    }
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed || entry.borrow != this || entry.physical.isClosed();
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Cached" + entry.physical;
+            }
+            if (closed || entry.borrow != this) {
+                throw new SQLException("Statement is closed");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(entry.physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (result instanceof ResultSet) {
+                track((ResultSet) result);
+            }
+            return result;
+        }
+
+        /**
+         * Keeps the result sets of executeQuery, getResultSet and
+         * getGeneratedKeys, so closing the handle closes them as closing a
+         * statement does.
+         */
+        private synchronized void track(ResultSet rs) {
+            if (!resultSets.contains(rs)) {
+                resultSets.add(rs);
+            }
+        }
+
+        synchronized void closeResultSets() {
+            for (ResultSet rs : resultSets) {
+                try {
+                    rs.close();
+                } catch (SQLException ex) {
+                    ErrorLog.error("Could not close the result set of a cached statement", ex);
+                }
+            }
+            resultSets.clear();
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package db;
+
+/**
+ * Snapshot of the prepared-statement cache counters of a
+ * {@link ConnectionPool}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class StatementCacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int cachedStatements;
+
+    public StatementCacheStats(long hits, long misses, long evictions, int cachedStatements) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.cachedStatements = cachedStatements;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getCachedStatements() {
+        return cachedStatements;
+    }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCacheStats{" + "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", cachedStatements=" + cachedStatements + ", hitRatio=" + getHitRatio() + '}';
+    }
+
+}
@@ -0,0 +1,90 @@
+package db;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of the transactions run by {@link Transactions},
+ * grouped by {@link TransactionOptions#getName()}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class TransactionMetrics {
+
+    private final ConcurrentHashMap<String, Stats> byName = new ConcurrentHashMap<>();
+
+    void record(String name, long nanos, boolean committed, int retries) {
+        Stats stats = byName.computeIfAbsent(name, k -> new Stats());
+        stats.count.increment();
+        if (committed) {
+            stats.commits.increment();
+        } else {
+            stats.rollbacks.increment();
+        }
+        stats.retries.add(retries);
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulate(nanos);
+    }
+
+    public Stats get(String name) {
+        return byName.get(name);
+    }
+
+    public Map<String, Stats> getAll() {
+        return new TreeMap<>(byName);
+    }
+
+    public void reset() {
+        byName.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionMetrics" + getAll();
+    }
+
+    public static class Stats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder commits = new LongAdder();
+        private final LongAdder rollbacks = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getCommits() {
+            return commits.sum();
+        }
+
+        public long getRollbacks() {
+            return rollbacks.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public double getAverageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return "{" + "count=" + getCount() + ", commits=" + getCommits() + ", rollbacks=" + getRollbacks()
+                    + ", retries=" + getRetries() + ", avgMs=" + getAverageMillis() + ", maxMs=" + getMaxMillis() + '}';
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package db;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+/**
+ * Settings of a transaction run by {@link Transactions}.
+ *
+ * The defaults come from the {@code tx.*} keys of banco.properties:
+ * tx.maxRetries (default 5), tx.initialBackoffMs (default 10) and
+ * tx.maxBackoffMs (default 1000).
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class TransactionOptions {
+
+    /**
+     * Keeps the isolation level of the connection.
+     */
+    public static final int DEFAULT_ISOLATION = -1;
+
+    private String name = "default";
+    private int isolation = DEFAULT_ISOLATION;
+    private int maxRetries = 5;
+    private long initialBackoffMs = 10;
+    private long maxBackoffMs = 1000;
+
+    public TransactionOptions() {
+    }
+
+    public TransactionOptions(Properties props) {
+        maxRetries = Integer.parseInt(props.getProperty("tx.maxRetries", String.valueOf(maxRetries)));
+        initialBackoffMs = Long.parseLong(props.getProperty("tx.initialBackoffMs", String.valueOf(initialBackoffMs)));
+        maxBackoffMs = Long.parseLong(props.getProperty("tx.maxBackoffMs", String.valueOf(maxBackoffMs)));
+    }
+
+    public TransactionOptions copy() {
+        TransactionOptions other = new TransactionOptions();
+        other.name = name;
+        other.isolation = isolation;
+        other.maxRetries = maxRetries;
+        other.initialBackoffMs = initialBackoffMs;
+        other.maxBackoffMs = maxBackoffMs;
+        return other;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name key under which the timings of the transaction are kept in
+     * {@link TransactionMetrics}
+     */
+    public TransactionOptions setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public int getIsolation() {
+        return isolation;
+    }
+
+    /**
+     * @param isolation one of the {@code Connection.TRANSACTION_*} levels, or
+     * {@link #DEFAULT_ISOLATION}
+     * @see Connection#setTransactionIsolation(int)
+     */
+    public TransactionOptions setIsolation(int isolation) {
+        this.isolation = isolation;
+        return this;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public TransactionOptions setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    public long getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public TransactionOptions setInitialBackoffMs(long initialBackoffMs) {
+        this.initialBackoffMs = initialBackoffMs;
+        return this;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public TransactionOptions setMaxBackoffMs(long maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+        return this;
+    }
+
+}
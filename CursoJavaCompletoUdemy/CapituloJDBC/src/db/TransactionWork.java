@@ -0,0 +1,19 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Unit of work run by {@link DB#inTransaction(TransactionWork)}.
+ *
+ * The work may run more than once when the transaction is retried, so it
+ * must not have side effects outside the database.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+@FunctionalInterface
+public interface TransactionWork<T> {
+
+    public T execute(Connection conn) throws SQLException;
+
+}
@@ -0,0 +1,197 @@
+package db;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs units of work in a transaction.
+ *
+ * While a transaction is active, the connection is bound to the thread:
+ * {@link ConnectionPool#borrow()} returns it to every DAO call made by the
+ * work, so the DAOs take part in the transaction without knowing about it.
+ * A transaction started inside another one becomes a savepoint of the outer
+ * transaction.
+ *
+ * The outermost transaction is retried with exponential backoff when it
+ * fails because the database is busy or locked (SQLITE_BUSY, SQLITE_LOCKED,
+ * SQLState class 40).
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class Transactions {
+
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+    private static final TransactionMetrics METRICS = new TransactionMetrics();
+
+    private Transactions() {
+    }
+
+    public static TransactionMetrics getMetrics() {
+        return METRICS;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static <T> T run(ConnectionPool pool, TransactionOptions options, TransactionWork<T> work) {
+        Context ctx = CURRENT.get();
+        if (ctx != null) {
+            if (ctx.pool != pool) {
+                throw new DbException("A transaction of another connection pool is active in this thread");
+            }
+            return runNested(ctx, work);
+        }
+
+        long start = System.nanoTime();
+        int attempt = 0;
+        while (true) {
+            try {
+                T result = runOnce(pool, options, work);
+                METRICS.record(options.getName(), System.nanoTime() - start, true, attempt);
+                return result;
+            } catch (SQLException | RuntimeException ex) {
+                if (attempt < options.getMaxRetries() && DbException.isRetryable(ex)) {
+                    sleep(backoff(options, attempt));
+                    attempt++;
+                    continue;
+                }
+
+                METRICS.record(options.getName(), System.nanoTime() - start, false, attempt);
+                if (ex instanceof RuntimeException) {
+                    throw (RuntimeException) ex;
+                }
+                throw DbException.from("Transaction rolled back! Caused by: " + ex.getMessage(), (SQLException) ex);
+            }
+        }
+    }
+
+    /**
+     * @return the connection of the transaction active in this thread on the
+     * given pool, or null
+     */
+    static Connection boundConnection(ConnectionPool pool) {
+        Context ctx = CURRENT.get();
+        return ctx != null && ctx.pool == pool ? ctx.handle : null;
+    }
+
+    private static <T> T runOnce(ConnectionPool pool, TransactionOptions options, TransactionWork<T> work)
+            throws SQLException {
+        Connection conn = pool.borrow();
+        int previousIsolation = TransactionOptions.DEFAULT_ISOLATION;
+
+        try {
+            if (options.getIsolation() != TransactionOptions.DEFAULT_ISOLATION) {
+                previousIsolation = conn.getTransactionIsolation();
+                conn.setTransactionIsolation(options.getIsolation());
+            }
+            conn.setAutoCommit(false);
+
+            Context ctx = new Context(pool, conn);
+            CURRENT.set(ctx);
+
+            T result = work.execute(ctx.handle);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException ex) {
+            try {
+                conn.rollback();
+            } catch (SQLException e1) {
+                ex.addSuppressed(e1);
+            }
+            throw ex;
+        } finally {
+            CURRENT.remove();
+            try {
+                conn.setAutoCommit(true);
+                if (previousIsolation != TransactionOptions.DEFAULT_ISOLATION) {
+                    conn.setTransactionIsolation(previousIsolation);
+                }
+            } catch (SQLException ex) {
+                // the pool resets or discards the connection anyway
+            }
+            DB.closeConnection(conn);
+        }
+    }
+
+    private static <T> T runNested(Context ctx, TransactionWork<T> work) {
+        Savepoint savepoint;
+        try {
+            savepoint = ctx.conn.setSavepoint();
+        } catch (SQLException ex) {
+            throw DbException.from(ex);
+        }
+
+        try {
+            T result = work.execute(ctx.handle);
+            ctx.conn.releaseSavepoint(savepoint);
+            return result;
+        } catch (SQLException ex) {
+            rollbackTo(ctx, savepoint, ex);
+            throw DbException.from("Savepoint rolled back! Caused by: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            rollbackTo(ctx, savepoint, ex);
+            throw ex;
+        }
+    }
+
+    private static void rollbackTo(Context ctx, Savepoint savepoint, Exception cause) {
+        try {
+            ctx.conn.rollback(savepoint);
+        } catch (SQLException e1) {
+            cause.addSuppressed(e1);
+        }
+    }
+
+    private static long backoff(TransactionOptions options, int attempt) {
+        long max = Math.max(1, options.getMaxBackoffMs());
+        long base = Math.min(max, options.getInitialBackoffMs() << Math.min(attempt, 20));
+        base = Math.max(1, base);
+        // full jitter on the upper half, so concurrent writers spread out
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DbException("Interrupted while waiting to retry the transaction");
+        }
+    }
+
+    private static class Context {
+
+        private final ConnectionPool pool;
+        private final Connection conn;
+        private final Connection handle;
+
+        Context(ConnectionPool pool, Connection conn) {
+            this.pool = pool;
+            this.conn = conn;
+            this.handle = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if ("close".equals(name)) {
+                            return null;
+                        }
+                        if ("commit".equals(name) || "setAutoCommit".equals(name)
+                                || ("rollback".equals(name) && args == null)) {
+                            throw new SQLException(name + " is managed by the active transaction");
+                        }
+                        try {
+                            return method.invoke(conn, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+    }
+
+}
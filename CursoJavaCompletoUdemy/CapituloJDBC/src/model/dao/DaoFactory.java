@@ -1,8 +1,19 @@
 package model.dao;
 
 import db.DB;
+import db.TransactionOptions;
+import java.util.Properties;
+import model.dao.async.AsyncDepartmentDao;
+import model.dao.async.AsyncSellerDao;
+import model.dao.async.DaoExecutor;
+import model.dao.cache.CachingSellerDao;
+import model.dao.cache.DepartmentCache;
+import model.dao.cache.EvictionPolicy;
+import model.dao.changelog.ChangeLogTailer;
+import model.dao.changelog.PositionStore;
 import model.dao.impl.DepartmentDaoJDBC;
 import model.dao.impl.SellerDaoJDBC;
+import model.dao.load.SellerCsvLoader;
 
 /**
  *
@@ -10,12 +21,164 @@ import model.dao.impl.SellerDaoJDBC;
  */
 public class DaoFactory {
 
+    private static DepartmentCache departmentCache;
+    private static CachingSellerDao cachingSellerDao;
+    private static DaoExecutor daoExecutor;
+    private static boolean shutdownHook;
+
     public static DepartmentDao factoryDepartmentDao() {
-        return new DepartmentDaoJDBC(DB.getConnection());
+        DepartmentDaoJDBC dao = new DepartmentDaoJDBC(DB.getReadPool(), DB.getPool(), batchSize());
+        dao.setDepartmentCache(getDepartmentCache());
+        dao.setTransactionOptions(new TransactionOptions(DB.getProperties()));
+        dao.setOnChange(id -> invalidateSellerCache());
+        return dao;
     }
 
+    /**
+     * Returns the shared {@link CachingSellerDao} when cache.seller.enabled is
+     * true, or a plain JDBC DAO otherwise. With write-behind enabled, its
+     * pending updates are flushed by {@link #close()}, which also runs when
+     * the JVM exits.
+     */
     public static SellerDao factorySellerDao() {
-        return new SellerDaoJDBC(DB.getConnection());
+        Properties props = DB.getProperties();
+        if (!Boolean.parseBoolean(props.getProperty("cache.seller.enabled", "false"))) {
+            return factorySellerDaoJDBC();
+        }
+
+        synchronized (DaoFactory.class) {
+            if (cachingSellerDao == null) {
+                cachingSellerDao = new CachingSellerDao(factorySellerDaoJDBC(),
+                        Integer.parseInt(props.getProperty("cache.seller.maxSize", "10000")),
+                        EvictionPolicy.valueOf(props.getProperty("cache.seller.policy", "LRU")),
+                        Long.parseLong(props.getProperty("cache.seller.writeBehindMs", "0")),
+                        Integer.parseInt(props.getProperty("cache.seller.writeBehindMaxPending", "1000")));
+                if (Long.parseLong(props.getProperty("cache.seller.writeBehindMs", "0")) > 0 && !shutdownHook) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(DaoFactory::close, "DaoFactory-shutdown"));
+                    shutdownHook = true;
+                }
+            }
+            return cachingSellerDao;
+        }
+    }
+
+    private static SellerDao factorySellerDaoJDBC() {
+        SellerDaoJDBC dao = new SellerDaoJDBC(DB.getReadPool(), DB.getPool(), batchSize());
+        dao.setFetchSize(Integer.parseInt(DB.getProperties().getProperty("fetch.size", "500")));
+        dao.setDepartmentCache(getDepartmentCache());
+        dao.setTransactionOptions(new TransactionOptions(DB.getProperties()));
+        return dao;
+    }
+
+    public static AsyncDepartmentDao factoryAsyncDepartmentDao() {
+        return new AsyncDepartmentDao(factoryDepartmentDao(), getDaoExecutor());
+    }
+
+    public static AsyncSellerDao factoryAsyncSellerDao() {
+        return new AsyncSellerDao(factorySellerDao(), getDaoExecutor());
+    }
+
+    /**
+     * CSV loader writing through the write pool, configured by the load.*
+     * keys. It invalidates the shared caches after every load.
+     */
+    public static SellerCsvLoader factorySellerCsvLoader() {
+        Properties props = DB.getProperties();
+        SellerCsvLoader loader = new SellerCsvLoader(DB.getPool(), factoryDepartmentDao());
+        String parserThreads = props.getProperty("load.parserThreads");
+        if (parserThreads != null) {
+            loader.setParserThreads(Integer.parseInt(parserThreads));
+        }
+        loader.setChunkSize(Integer.parseInt(props.getProperty("load.chunkSize", "1000")));
+        loader.setQueueCapacity(Integer.parseInt(props.getProperty("load.queueCapacity", "64")));
+        loader.setRowsPerTransaction(Integer.parseInt(props.getProperty("load.rowsPerTransaction", "50000")));
+        loader.setBatchSize(batchSize());
+        loader.setTransactionOptions(new TransactionOptions(props));
+        loader.setDepartmentCache(getDepartmentCache());
+        synchronized (DaoFactory.class) {
+            loader.setSellerCache(cachingSellerDao);
+        }
+        return loader;
+    }
+
+    /**
+     * Tailer of the change log, configured by changelog.batchSize. It loads
+     * the changed rows with DAOs of its own, without the caches, so the
+     * events carry the rows as they are in the database.
+     */
+    public static ChangeLogTailer factoryChangeLogTailer(PositionStore positionStore) {
+        ChangeLogTailer tailer = new ChangeLogTailer(DB.getReadPool(), DB.getPool(),
+                new SellerDaoJDBC(DB.getReadPool(), DB.getPool(), batchSize()),
+                new DepartmentDaoJDBC(DB.getReadPool(), DB.getPool(), batchSize()),
+                positionStore);
+        tailer.setBatchSize(Integer.parseInt(DB.getProperties().getProperty("changelog.batchSize", "500")));
+        return tailer;
+    }
+
+    /**
+     * Executor shared by the async DAOs. By default it runs as many calls at
+     * once as the read pool has connections.
+     */
+    public static synchronized DaoExecutor getDaoExecutor() {
+        if (daoExecutor == null) {
+            Properties props = DB.getProperties();
+            String maxConcurrent = props.getProperty("async.maxConcurrent");
+            daoExecutor = new DaoExecutor(
+                    maxConcurrent != null ? Integer.parseInt(maxConcurrent) : DB.getReadPool().getMaxSize(),
+                    Integer.parseInt(props.getProperty("async.maxQueued", "10000")),
+                    Long.parseLong(props.getProperty("async.timeoutMs", "30000")),
+                    Boolean.parseBoolean(props.getProperty("async.virtualThreads", "true")));
+        }
+        return daoExecutor;
+    }
+
+    /**
+     * Department cache shared by every DAO created here, or null when
+     * cache.department.enabled is false.
+     */
+    public static synchronized DepartmentCache getDepartmentCache() {
+        Properties props = DB.getProperties();
+        if (departmentCache == null
+                && Boolean.parseBoolean(props.getProperty("cache.department.enabled", "true"))) {
+            departmentCache = new DepartmentCache(
+                    Integer.parseInt(props.getProperty("cache.department.maxSize", "1000")),
+                    Long.parseLong(props.getProperty("cache.department.ttlMs", "300000")));
+        }
+        return departmentCache;
+    }
+
+    /**
+     * Flushes the pending writes of the shared {@link CachingSellerDao} and
+     * stops its flusher. Call it before {@link DB#closeConnection()}; the next
+     * factorySellerDao creates a new cache.
+     */
+    public static void close() {
+        CachingSellerDao dao;
+        synchronized (DaoFactory.class) {
+            dao = cachingSellerDao;
+            cachingSellerDao = null;
+        }
+        if (dao != null) {
+            dao.close();
+        }
+    }
+
+    /**
+     * Drops the sellers of the shared {@link CachingSellerDao}, whose
+     * departments may have changed.
+     */
+    private static void invalidateSellerCache() {
+        CachingSellerDao dao;
+        synchronized (DaoFactory.class) {
+            dao = cachingSellerDao;
+        }
+        if (dao != null) {
+            dao.invalidateAll();
+        }
+    }
+
+    private static int batchSize() {
+        return Integer.parseInt(DB.getProperties().getProperty("batch.size", "500"));
     }
 
 }
@@ -1,6 +1,8 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import model.entities.Department;
 
 /**
@@ -15,8 +17,51 @@ public interface DepartmentDao {
 
     public void deleteById(Integer id);
 
+    /**
+     * Inserts every object in a single transaction using JDBC batches and
+     * sets the generated ids on them.
+     */
+    public void insertAll(Collection<Department> list);
+
+    /**
+     * Updates every object in a single transaction using JDBC batches.
+     */
+    public void updateAll(Collection<Department> list);
+
+    /**
+     * Deletes the given ids in a single transaction using JDBC batches.
+     */
+    public void deleteByIds(Collection<Integer> ids);
+
+    /**
+     * Inserts the department, or updates the one with the same id. A
+     * department without id is always inserted.
+     *
+     * @return true when the department was inserted
+     */
+    public boolean upsert(Department obj);
+
     public Department findById(Integer id);
 
+    /**
+     * Reads many departments with a few queries instead of one per id.
+     *
+     * @return the departments found, by id; missing ids are not in the map
+     */
+    public Map<Integer, Department> findByIds(Collection<Integer> ids);
+
     public List<Department> findAll();
 
+    /**
+     * Keyset pagination over departments ordered by (Name, Id), departments
+     * without a name first.
+     *
+     * @param afterName Name of the last department of the previous page,
+     * which may be null
+     * @param afterId Id of the last department of the previous page, or null
+     * for the first page (afterName must then be null too)
+     * @param limit maximum number of departments returned
+     */
+    public List<Department> findPage(String afterName, Integer afterId, int limit);
+
 }
@@ -1,8 +1,14 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import model.entities.Department;
+import model.entities.SalaryStats;
 import model.entities.Seller;
+import model.entities.SellerColumns;
+import model.entities.YearHistogram;
 
 /**
  *
@@ -16,10 +22,97 @@ public interface SellerDao {
 
     public void deleteById(Integer id);
 
+    /**
+     * Inserts every object in a single transaction using JDBC batches and
+     * sets the generated ids on them.
+     */
+    public void insertAll(Collection<Seller> list);
+
+    /**
+     * Updates every object in a single transaction using JDBC batches.
+     */
+    public void updateAll(Collection<Seller> list);
+
+    /**
+     * Deletes the given ids in a single transaction using JDBC batches.
+     */
+    public void deleteByIds(Collection<Integer> ids);
+
+    /**
+     * Inserts the seller, or updates the one with the same Email, and sets
+     * its id.
+     *
+     * @return true when the seller was inserted
+     */
+    public boolean upsert(Seller obj);
+
+    /**
+     * Upserts every object by Email in a single transaction using JDBC
+     * batches, and sets the ids on them.
+     */
+    public UpsertResult upsertAll(Collection<Seller> list);
+
     public Seller findById(Integer id);
 
+    /**
+     * Reads many sellers with a few queries instead of one per id.
+     *
+     * @return the sellers found, by id; missing ids are not in the map
+     */
+    public Map<Integer, Seller> findByIds(Collection<Integer> ids);
+
     public List<Seller> findAll();
 
     public List<Seller> findByDepartment(Department department);
 
+    /**
+     * Keyset pagination over sellers ordered by (Name, Id).
+     *
+     * @param afterName Name of the last seller of the previous page, or null
+     * for the first page
+     * @param afterId Id of the last seller of the previous page, or null for
+     * the first page; afterName and afterId are both null or both set
+     * @param limit maximum number of sellers returned
+     */
+    public List<Seller> findPage(String afterName, Integer afterId, int limit);
+
+    /**
+     * Sellers at positions offset to offset + limit - 1 in (Name, Id) order.
+     * The database still walks the rows before offset, so prefer
+     * {@link #findPage(String, Integer, int)} when the previous row is known.
+     */
+    public List<Seller> findRange(int offset, int limit);
+
+    /**
+     * Every seller in primitive columns, for bulk reads and aggregations
+     * that do not need one object per row. Emails are not read.
+     */
+    public SellerColumns findAllColumns();
+
+    public long count();
+
+    /**
+     * Count, sum, average, minimum and maximum BaseSalary of each department
+     * with sellers, computed by the database.
+     */
+    public SalaryStats salaryByDepartment();
+
+    /**
+     * Number of sellers born in each year, computed by the database.
+     */
+    public YearHistogram countByBirthYear();
+
+    /**
+     * Same rows as {@link #findAll()}, read from the database while the
+     * stream is consumed. The stream holds a connection until it is closed,
+     * so use it in a try-with-resources block.
+     */
+    public Stream<Seller> streamAll();
+
+    /**
+     * Same rows as {@link #findByDepartment(Department)}, read from the
+     * database while the stream is consumed. The stream must be closed.
+     */
+    public Stream<Seller> streamByDepartment(Department department);
+
 }
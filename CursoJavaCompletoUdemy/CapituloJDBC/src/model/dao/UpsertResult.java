@@ -0,0 +1,44 @@
+package model.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ids of the rows an upsert inserted and of the ones it updated, in the order
+ * of the objects given to it.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class UpsertResult {
+
+    private final List<Integer> inserted;
+    private final List<Integer> updated;
+
+    public UpsertResult(List<Integer> inserted, List<Integer> updated) {
+        this.inserted = Collections.unmodifiableList(new ArrayList<>(inserted));
+        this.updated = Collections.unmodifiableList(new ArrayList<>(updated));
+    }
+
+    public List<Integer> getInserted() {
+        return inserted;
+    }
+
+    public List<Integer> getUpdated() {
+        return updated;
+    }
+
+    public int getInsertedCount() {
+        return inserted.size();
+    }
+
+    public int getUpdatedCount() {
+        return updated.size();
+    }
+
+    @Override
+    public String toString() {
+        return "UpsertResult{" + "inserted=" + inserted.size() + ", updated=" + updated.size() + '}';
+    }
+
+}
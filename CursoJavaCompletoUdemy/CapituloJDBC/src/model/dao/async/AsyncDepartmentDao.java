@@ -0,0 +1,112 @@
+package model.dao.async;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Non-blocking facade of a {@link DepartmentDao}: every call runs on a
+ * {@link DaoExecutor} and returns a {@link CompletableFuture}, so callers such
+ * as a UI thread never wait for the database.
+ *
+ * Only the reads time out. A write keeps its future until it ends, since a
+ * SQLite statement does not stop when its thread is interrupted and a write
+ * that timed out could still commit.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class AsyncDepartmentDao {
+
+    private final DepartmentDao delegate;
+    private final DaoExecutor executor;
+    private final long timeoutMs;
+
+    /**
+     * Reads use the default timeout of the executor.
+     */
+    public AsyncDepartmentDao(DepartmentDao delegate, DaoExecutor executor) {
+        this(delegate, executor, -1);
+    }
+
+    private AsyncDepartmentDao(DepartmentDao delegate, DaoExecutor executor, long timeoutMs) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return a facade over the same DAO whose reads time out after
+     * timeoutMs; 0 disables the timeout
+     */
+    public AsyncDepartmentDao withTimeout(long timeoutMs) {
+        return new AsyncDepartmentDao(delegate, executor, timeoutMs);
+    }
+
+    public CompletableFuture<Void> insert(Department obj) {
+        return run(() -> delegate.insert(obj));
+    }
+
+    public CompletableFuture<Void> update(Department obj) {
+        return run(() -> delegate.update(obj));
+    }
+
+    public CompletableFuture<Void> deleteById(Integer id) {
+        return run(() -> delegate.deleteById(id));
+    }
+
+    public CompletableFuture<Void> insertAll(Collection<Department> list) {
+        return run(() -> delegate.insertAll(list));
+    }
+
+    public CompletableFuture<Void> updateAll(Collection<Department> list) {
+        return run(() -> delegate.updateAll(list));
+    }
+
+    public CompletableFuture<Void> deleteByIds(Collection<Integer> ids) {
+        return run(() -> delegate.deleteByIds(ids));
+    }
+
+    public CompletableFuture<Boolean> upsert(Department obj) {
+        return write(() -> delegate.upsert(obj));
+    }
+
+    public CompletableFuture<Department> findById(Integer id) {
+        return call(() -> delegate.findById(id));
+    }
+
+    public CompletableFuture<Map<Integer, Department>> findByIds(Collection<Integer> ids) {
+        return call(() -> delegate.findByIds(ids));
+    }
+
+    public CompletableFuture<List<Department>> findAll() {
+        return call(delegate::findAll);
+    }
+
+    public CompletableFuture<List<Department>> findPage(String afterName, Integer afterId, int limit) {
+        return call(() -> delegate.findPage(afterName, afterId, limit));
+    }
+
+    public DepartmentDao getDelegate() {
+        return delegate;
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        return timeoutMs < 0 ? executor.submit(supplier) : executor.submit(supplier, timeoutMs);
+    }
+
+    private <T> CompletableFuture<T> write(Supplier<T> supplier) {
+        return executor.submit(supplier, 0);
+    }
+
+    private CompletableFuture<Void> run(Runnable runnable) {
+        return write(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+}
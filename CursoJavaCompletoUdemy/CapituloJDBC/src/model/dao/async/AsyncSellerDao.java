@@ -0,0 +1,148 @@
+package model.dao.async;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import model.dao.SellerDao;
+import model.dao.UpsertResult;
+import model.entities.Department;
+import model.entities.SalaryStats;
+import model.entities.Seller;
+import model.entities.SellerColumns;
+import model.entities.YearHistogram;
+
+/**
+ * Non-blocking facade of a {@link SellerDao}: every call runs on a
+ * {@link DaoExecutor} and returns a {@link CompletableFuture}, so callers such
+ * as a UI thread never wait for the database.
+ *
+ * Only the reads time out. A write keeps its future until it ends, since a
+ * SQLite statement does not stop when its thread is interrupted and a write
+ * that timed out could still commit.
+ *
+ * The streaming queries are not offered, since a stream holds a connection
+ * until it is closed; use findAll or findPage instead.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class AsyncSellerDao {
+
+    private final SellerDao delegate;
+    private final DaoExecutor executor;
+    private final long timeoutMs;
+
+    /**
+     * Reads use the default timeout of the executor.
+     */
+    public AsyncSellerDao(SellerDao delegate, DaoExecutor executor) {
+        this(delegate, executor, -1);
+    }
+
+    private AsyncSellerDao(SellerDao delegate, DaoExecutor executor, long timeoutMs) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return a facade over the same DAO whose reads time out after
+     * timeoutMs; 0 disables the timeout
+     */
+    public AsyncSellerDao withTimeout(long timeoutMs) {
+        return new AsyncSellerDao(delegate, executor, timeoutMs);
+    }
+
+    public CompletableFuture<Void> insert(Seller obj) {
+        return run(() -> delegate.insert(obj));
+    }
+
+    public CompletableFuture<Void> update(Seller obj) {
+        return run(() -> delegate.update(obj));
+    }
+
+    public CompletableFuture<Void> deleteById(Integer id) {
+        return run(() -> delegate.deleteById(id));
+    }
+
+    public CompletableFuture<Void> insertAll(Collection<Seller> list) {
+        return run(() -> delegate.insertAll(list));
+    }
+
+    public CompletableFuture<Void> updateAll(Collection<Seller> list) {
+        return run(() -> delegate.updateAll(list));
+    }
+
+    public CompletableFuture<Void> deleteByIds(Collection<Integer> ids) {
+        return run(() -> delegate.deleteByIds(ids));
+    }
+
+    public CompletableFuture<Boolean> upsert(Seller obj) {
+        return write(() -> delegate.upsert(obj));
+    }
+
+    public CompletableFuture<UpsertResult> upsertAll(Collection<Seller> list) {
+        return write(() -> delegate.upsertAll(list));
+    }
+
+    public CompletableFuture<Seller> findById(Integer id) {
+        return call(() -> delegate.findById(id));
+    }
+
+    public CompletableFuture<Map<Integer, Seller>> findByIds(Collection<Integer> ids) {
+        return call(() -> delegate.findByIds(ids));
+    }
+
+    public CompletableFuture<List<Seller>> findAll() {
+        return call(delegate::findAll);
+    }
+
+    public CompletableFuture<List<Seller>> findByDepartment(Department department) {
+        return call(() -> delegate.findByDepartment(department));
+    }
+
+    public CompletableFuture<List<Seller>> findPage(String afterName, Integer afterId, int limit) {
+        return call(() -> delegate.findPage(afterName, afterId, limit));
+    }
+
+    public CompletableFuture<List<Seller>> findRange(int offset, int limit) {
+        return call(() -> delegate.findRange(offset, limit));
+    }
+
+    public CompletableFuture<SellerColumns> findAllColumns() {
+        return call(delegate::findAllColumns);
+    }
+
+    public CompletableFuture<Long> count() {
+        return call(delegate::count);
+    }
+
+    public CompletableFuture<SalaryStats> salaryByDepartment() {
+        return call(delegate::salaryByDepartment);
+    }
+
+    public CompletableFuture<YearHistogram> countByBirthYear() {
+        return call(delegate::countByBirthYear);
+    }
+
+    public SellerDao getDelegate() {
+        return delegate;
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        return timeoutMs < 0 ? executor.submit(supplier) : executor.submit(supplier, timeoutMs);
+    }
+
+    private <T> CompletableFuture<T> write(Supplier<T> supplier) {
+        return executor.submit(supplier, 0);
+    }
+
+    private CompletableFuture<Void> run(Runnable runnable) {
+        return write(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+}
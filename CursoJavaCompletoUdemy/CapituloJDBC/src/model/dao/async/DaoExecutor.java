@@ -0,0 +1,227 @@
+package model.dao.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking DAO calls off the caller's thread.
+ *
+ * Calls run on virtual threads when the JVM has them (Java 21+), or on a
+ * bounded pool of daemon threads otherwise. Either way, a bulkhead lets at
+ * most maxConcurrent calls use the database at the same time (size it like
+ * the connection pool), and at most maxQueued more wait for their turn;
+ * further calls fail at once with {@link RejectedExecutionException}. A call
+ * that does not finish within its timeout fails with
+ * {@link TimeoutException} and its thread is interrupted. A statement already
+ * running in SQLite ignores the interrupt, so a write that timed out may
+ * still be applied; submit writes with no timeout, as the async DAOs do.
+ *
+ * The calls run outside the caller's transaction (see db.Transactions).
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class DaoExecutor {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long defaultTimeoutMs;
+    private final boolean virtualThreads;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Semaphore bulkhead;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param maxConcurrent calls running at the same time
+     * @param maxQueued calls waiting for a free slot
+     * @param defaultTimeoutMs timeout of a call, counted from its submission;
+     * 0 disables it
+     * @param useVirtualThreads use virtual threads when available
+     */
+    public DaoExecutor(int maxConcurrent, int maxQueued, long defaultTimeoutMs, boolean useVirtualThreads) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be greater than zero");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.bulkhead = new Semaphore(maxConcurrent, true);
+
+        ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformExecutor(maxConcurrent);
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DaoExecutor-timer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return submit(call, defaultTimeoutMs);
+    }
+
+    /**
+     * @param timeoutMs timeout of this call; 0 disables it. A write that
+     * times out may still be applied to the database.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call, long timeoutMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        if (pending.incrementAndGet() > maxConcurrent + maxQueued) {
+            pending.decrementAndGet();
+            rejected.increment();
+            result.completeExceptionally(new RejectedExecutionException("DAO bulkhead is full ("
+                    + maxConcurrent + " running, " + maxQueued + " queued)"));
+            return result;
+        }
+        submitted.increment();
+        result.whenComplete((value, ex) -> pending.decrementAndGet());
+
+        long deadline = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0;
+
+        Future<?> task;
+        try {
+            task = executor.submit(() -> run(call, result, deadline));
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            result.completeExceptionally(ex);
+            return result;
+        }
+
+        if (timeoutMs > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                if (result.completeExceptionally(new TimeoutException("DAO call timed out after " + timeoutMs + "ms"))) {
+                    timeouts.increment();
+                    task.cancel(true);
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            result.whenComplete((value, ex) -> timeout.cancel(false));
+        }
+
+        return result;
+    }
+
+    private <T> void run(Supplier<T> call, CompletableFuture<T> result, long deadline) {
+        if (result.isDone()) {
+            return;
+        }
+
+        try {
+            boolean acquired;
+            if (deadline == 0) {
+                bulkhead.acquire();
+                acquired = true;
+            } else {
+                acquired = bulkhead.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                return; // the timer fails the call
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            if (!result.isDone()) {
+                result.complete(call.get());
+            }
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Stops accepting calls. Calls already submitted still run.
+     */
+    public void close() {
+        executor.shutdown();
+        timer.shutdown();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getRunningCount() {
+        return maxConcurrent - bulkhead.availablePermits();
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DaoExecutor{" + "virtualThreads=" + virtualThreads + ", maxConcurrent=" + maxConcurrent
+                + ", maxQueued=" + maxQueued + ", running=" + getRunningCount() + ", pending=" + getPendingCount()
+                + ", submitted=" + getSubmittedCount() + ", rejected=" + getRejectedCount()
+                + ", timeouts=" + getTimeoutCount() + '}';
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() looked up by reflection, so
+     * the code still compiles and runs on Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // not available, or still a preview feature of this JVM
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "DaoExecutor-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+}
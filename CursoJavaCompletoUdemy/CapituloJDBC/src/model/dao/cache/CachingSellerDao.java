@@ -0,0 +1,678 @@
+package model.dao.cache;
+
+import db.DbException;
+import db.ErrorLog;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import model.dao.SellerDao;
+import model.dao.UpsertResult;
+import model.entities.Department;
+import model.entities.SalaryStats;
+import model.entities.Seller;
+import model.entities.SellerColumns;
+import model.entities.YearHistogram;
+
+/**
+ * {@link SellerDao} decorator that keeps a bounded cache of sellers read by
+ * {@link #findById(Integer)}.
+ *
+ * Writes made through this object invalidate the cached rows, and a read
+ * that started before a write never stores its (older) result in the cache.
+ * Sellers and their departments are copied when they enter and leave the
+ * cache, so changing a returned object does not change the cache. Writes to
+ * the departments are not seen here: whoever makes them calls
+ * {@link #invalidateAll()}, as the DAOs of DaoFactory do.
+ *
+ * With write-behind enabled, {@link #update(Seller)} only records the new
+ * state: updates of the same seller are coalesced and sent with
+ * {@code updateAll} every flush interval, or as soon as the number of pending
+ * sellers reaches its limit. Pending sellers are served by findById, and the
+ * other queries flush them before reading the database.
+ *
+ * A flush never fails the call that triggered it. When the batch fails with
+ * a busy or locked database it is kept for the next flush; otherwise its
+ * sellers are sent one by one, and those rejected on their own (a seller
+ * deleted in the meantime, a duplicated email) are dropped from the queue,
+ * written to {@link ErrorLog} and kept in {@link #getDeadLetters()}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class CachingSellerDao implements SellerDao {
+
+    private final SellerDao delegate;
+    private final int maxSize;
+    private final EvictionPolicy policy;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<Integer, Node> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final TreeMap<Long, LinkedHashSet<Integer>> frequencies = new TreeMap<>();
+    private long version = 0;
+
+    private final boolean writeBehind;
+    private final int maxPending;
+    private final LinkedHashMap<Integer, Seller> pending = new LinkedHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final ArrayDeque<Seller> deadLetters = new ArrayDeque<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder coalescedWrites = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushErrors = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+
+    private static final int MAX_DEAD_LETTERS = 100;
+
+    public CachingSellerDao(SellerDao delegate, int maxSize, EvictionPolicy policy) {
+        this(delegate, maxSize, policy, 0, 0);
+    }
+
+    /**
+     * @param writeBehindMillis interval between flushes of pending updates;
+     * 0 writes every update straight to the delegate
+     * @param maxPending number of pending sellers that forces a flush
+     */
+    public CachingSellerDao(SellerDao delegate, int maxSize, EvictionPolicy policy,
+            long writeBehindMillis, int maxPending) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be greater than zero");
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.policy = policy;
+        this.writeBehind = writeBehindMillis > 0;
+        this.maxPending = Math.max(1, maxPending);
+
+        if (writeBehind) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "CachingSellerDao-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly,
+                    writeBehindMillis, writeBehindMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public void insert(Seller obj) {
+        delegate.insert(obj);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the seller has no id, with or
+     * without write-behind
+     */
+    @Override
+    public void update(Seller obj) {
+        checkId(obj);
+        if (!writeBehind) {
+            try {
+                delegate.update(obj);
+            } finally {
+                invalidate(obj.getId());
+            }
+            return;
+        }
+
+        boolean full;
+        synchronized (lock) {
+            Seller copy = copy(obj);
+            if (pending.put(obj.getId(), copy) != null) {
+                coalescedWrites.increment();
+            }
+            version++;
+            store(copy);
+            full = pending.size() >= maxPending;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        flushLock.lock();
+        try {
+            synchronized (lock) {
+                pending.remove(id);
+            }
+            delegate.deleteById(id);
+        } finally {
+            flushLock.unlock();
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Seller> list) {
+        delegate.insertAll(list);
+    }
+
+    @Override
+    public void updateAll(Collection<Seller> list) {
+        if (writeBehind) {
+            for (Seller obj : list) {
+                checkId(obj);
+            }
+            for (Seller obj : list) {
+                update(obj);
+            }
+            return;
+        }
+
+        try {
+            delegate.updateAll(list);
+        } finally {
+            for (Seller obj : list) {
+                invalidate(obj.getId());
+            }
+        }
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        flushLock.lock();
+        try {
+            synchronized (lock) {
+                for (Integer id : ids) {
+                    pending.remove(id);
+                }
+            }
+            delegate.deleteByIds(ids);
+        } finally {
+            flushLock.unlock();
+            for (Integer id : ids) {
+                invalidate(id);
+            }
+        }
+    }
+
+    @Override
+    public boolean upsert(Seller obj) {
+        return upsertAll(Collections.singletonList(obj)).getInsertedCount() > 0;
+    }
+
+    /**
+     * Flushes the pending writes first, as an upsert may update any of them.
+     */
+    @Override
+    public UpsertResult upsertAll(Collection<Seller> list) {
+        flush();
+        try {
+            return delegate.upsertAll(list);
+        } finally {
+            for (Seller obj : list) {
+                if (obj.getId() != null) {
+                    invalidate(obj.getId());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Seller findById(Integer id) {
+        long readVersion;
+        synchronized (lock) {
+            Seller obj = pending.get(id);
+            if (obj == null) {
+                Node node = entries.get(id);
+                if (node != null) {
+                    touch(id, node);
+                    obj = node.seller;
+                }
+            }
+            if (obj != null) {
+                hits.increment();
+                return copy(obj);
+            }
+            readVersion = version;
+        }
+
+        misses.increment();
+        Seller obj = delegate.findById(id);
+
+        if (obj != null) {
+            synchronized (lock) {
+                if (version == readVersion) {
+                    store(copy(obj));
+                }
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Serves the cached and pending sellers and reads only the others from the
+     * delegate, in a single findByIds call.
+     */
+    @Override
+    public Map<Integer, Seller> findByIds(Collection<Integer> ids) {
+        Map<Integer, Seller> result = new HashMap<>();
+        LinkedHashSet<Integer> missing = new LinkedHashSet<>();
+        long readVersion;
+        synchronized (lock) {
+            for (Integer id : ids) {
+                if (id == null || result.containsKey(id)) {
+                    continue;
+                }
+                Seller obj = pending.get(id);
+                if (obj == null) {
+                    Node node = entries.get(id);
+                    if (node != null) {
+                        touch(id, node);
+                        obj = node.seller;
+                    }
+                }
+                if (obj != null) {
+                    hits.increment();
+                    result.put(id, copy(obj));
+                } else {
+                    missing.add(id);
+                }
+            }
+            readVersion = version;
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.add(missing.size());
+        Map<Integer, Seller> found = delegate.findByIds(missing);
+
+        synchronized (lock) {
+            if (version == readVersion) {
+                for (Seller obj : found.values()) {
+                    store(copy(obj));
+                }
+            }
+        }
+        result.putAll(found);
+        return result;
+    }
+
+    @Override
+    public List<Seller> findAll() {
+        flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Seller> findByDepartment(Department department) {
+        flush();
+        return delegate.findByDepartment(department);
+    }
+
+    @Override
+    public List<Seller> findPage(String afterName, Integer afterId, int limit) {
+        flush();
+        return delegate.findPage(afterName, afterId, limit);
+    }
+
+    @Override
+    public List<Seller> findRange(int offset, int limit) {
+        flush();
+        return delegate.findRange(offset, limit);
+    }
+
+    @Override
+    public SellerColumns findAllColumns() {
+        flush();
+        return delegate.findAllColumns();
+    }
+
+    @Override
+    public long count() {
+        flush();
+        return delegate.count();
+    }
+
+    @Override
+    public SalaryStats salaryByDepartment() {
+        flush();
+        return delegate.salaryByDepartment();
+    }
+
+    @Override
+    public YearHistogram countByBirthYear() {
+        flush();
+        return delegate.countByBirthYear();
+    }
+
+    @Override
+    public Stream<Seller> streamAll() {
+        flush();
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Stream<Seller> streamByDepartment(Department department) {
+        flush();
+        return delegate.streamByDepartment(department);
+    }
+
+    /**
+     * Sends the pending updates to the delegate. Does nothing when
+     * write-behind is disabled. Failures are handled as described in the
+     * class comment and never thrown.
+     */
+    public void flush() {
+        if (!writeBehind) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            List<Seller> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            try {
+                delegate.updateAll(batch);
+                flushes.increment();
+                flushedRows.add(batch.size());
+            } catch (RuntimeException ex) {
+                flushErrors.increment();
+                if (DbException.isRetryable(ex)) {
+                    ErrorLog.error("Write-behind flush failed, " + batch.size() + " sellers kept for the next one", ex);
+                    requeue(batch);
+                } else {
+                    flushOneByOne(batch);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the pending updates and stops the background flusher.
+     */
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    public void invalidateAll() {
+        synchronized (lock) {
+            invalidations.add(entries.size());
+            entries.clear();
+            frequencies.clear();
+            version++;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public long getCoalescedWrites() {
+        return coalescedWrites.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getFlushedRows() {
+        return flushedRows.sum();
+    }
+
+    public long getFlushErrors() {
+        return flushErrors.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingSellerDao{" + "policy=" + policy + ", size=" + size() + ", pending=" + getPendingCount()
+                + ", hits=" + getHits() + ", misses=" + getMisses() + ", hitRatio=" + getHitRatio()
+                + ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations()
+                + ", coalescedWrites=" + getCoalescedWrites() + ", flushes=" + getFlushes()
+                + ", flushedRows=" + getFlushedRows() + ", flushErrors=" + getFlushErrors()
+                + ", droppedWrites=" + getDroppedWrites() + '}';
+    }
+
+    /**
+     * @return the last sellers dropped by a flush, oldest first
+     */
+    public List<Seller> getDeadLetters() {
+        synchronized (lock) {
+            List<Seller> list = new ArrayList<>(deadLetters.size());
+            for (Seller obj : deadLetters) {
+                list.add(copy(obj));
+            }
+            return list;
+        }
+    }
+
+    public long getDroppedWrites() {
+        return droppedWrites.sum();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            ErrorLog.error("Write-behind flush failed", ex);
+        }
+    }
+
+    /**
+     * Sends the sellers of a failed batch one at a time, to find the ones
+     * the database rejects. Stops at the first busy or locked failure and
+     * keeps the rest for the next flush.
+     */
+    private void flushOneByOne(List<Seller> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            Seller obj = batch.get(i);
+            try {
+                delegate.update(obj);
+                flushedRows.increment();
+            } catch (RuntimeException ex) {
+                if (DbException.isRetryable(ex)) {
+                    ErrorLog.error("Write-behind flush failed, " + (batch.size() - i)
+                            + " sellers kept for the next one", ex);
+                    requeue(batch.subList(i, batch.size()));
+                    return;
+                }
+                drop(obj, ex);
+            }
+        }
+        flushes.increment();
+    }
+
+    /**
+     * Gives up a pending update the database rejected. The cached copy,
+     * which holds the rejected state, is dropped too unless the seller was
+     * updated again in the meantime.
+     */
+    private void drop(Seller obj, RuntimeException ex) {
+        droppedWrites.increment();
+        ErrorLog.error("Write-behind update of seller " + obj.getId() + " dropped", ex);
+        boolean updatedAgain;
+        synchronized (lock) {
+            if (deadLetters.size() == MAX_DEAD_LETTERS) {
+                deadLetters.removeFirst();
+            }
+            deadLetters.addLast(obj);
+            updatedAgain = pending.containsKey(obj.getId());
+        }
+        if (!updatedAgain) {
+            invalidate(obj.getId());
+        }
+    }
+
+    /**
+     * Puts back the sellers of a failed flush, unless they were updated again
+     * in the meantime.
+     */
+    private void requeue(List<Seller> batch) {
+        synchronized (lock) {
+            Map<Integer, Seller> newer = new HashMap<>(pending);
+            pending.clear();
+            for (Seller obj : batch) {
+                pending.put(obj.getId(), obj);
+            }
+            pending.putAll(newer);
+        }
+    }
+
+    private void invalidate(Integer id) {
+        synchronized (lock) {
+            Node node = entries.remove(id);
+            if (node != null) {
+                removeFrequency(id, node.frequency);
+                invalidations.increment();
+            }
+            version++;
+        }
+    }
+
+    /**
+     * Must be called holding {@code lock}.
+     */
+    private void store(Seller obj) {
+        Integer id = obj.getId();
+        Node node = entries.get(id);
+        if (node != null) {
+            node.seller = obj;
+            touch(id, node);
+            return;
+        }
+
+        while (entries.size() >= maxSize) {
+            evictOne();
+        }
+        node = new Node(obj);
+        entries.put(id, node);
+        addFrequency(id, node.frequency);
+    }
+
+    private void touch(Integer id, Node node) {
+        if (policy == EvictionPolicy.LFU) {
+            removeFrequency(id, node.frequency);
+            node.frequency++;
+            addFrequency(id, node.frequency);
+        }
+    }
+
+    private void evictOne() {
+        Integer victim;
+        if (policy == EvictionPolicy.LFU) {
+            Map.Entry<Long, LinkedHashSet<Integer>> lowest = frequencies.firstEntry();
+            Iterator<Integer> it = lowest.getValue().iterator();
+            victim = it.next();
+            it.remove();
+            if (lowest.getValue().isEmpty()) {
+                frequencies.remove(lowest.getKey());
+            }
+        } else {
+            victim = entries.keySet().iterator().next();
+        }
+        entries.remove(victim);
+        evictions.increment();
+    }
+
+    private void addFrequency(Integer id, long frequency) {
+        if (policy == EvictionPolicy.LFU) {
+            frequencies.computeIfAbsent(frequency, k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    private void removeFrequency(Integer id, long frequency) {
+        if (policy == EvictionPolicy.LFU) {
+            LinkedHashSet<Integer> ids = frequencies.get(frequency);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    frequencies.remove(frequency);
+                }
+            }
+        }
+    }
+
+    private static void checkId(Seller obj) {
+        if (obj.getId() == null) {
+            throw new IllegalArgumentException("Seller id can not be null");
+        }
+    }
+
+    private static Seller copy(Seller obj) {
+        Date birthDate = obj.getBirthDate() == null ? null : new Date(obj.getBirthDate().getTime());
+        Department dep = obj.getDepartment() == null ? null
+                : new Department(obj.getDepartment().getId(), obj.getDepartment().getName());
+        return new Seller(obj.getId(), obj.getName(), obj.getEmail(), birthDate,
+                obj.getBaseSalary(), dep);
+    }
+
+    private static class Node {
+
+        private Seller seller;
+        private long frequency = 1;
+
+        Node(Seller seller) {
+            this.seller = seller;
+        }
+    }
+
+}
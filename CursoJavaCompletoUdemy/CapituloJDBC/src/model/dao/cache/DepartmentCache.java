@@ -0,0 +1,145 @@
+package model.dao.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import model.entities.Department;
+
+/**
+ * Bounded LRU cache of {@link Department} entities with time-to-live,
+ * shared by the DAOs so departments joined on every seller read are not
+ * rebuilt nor fetched again.
+ *
+ * The cached instances are shared between callers: treat them as read-only
+ * and call {@code DepartmentDao.update} to change a department, which evicts
+ * its entry.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class DepartmentCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maxSize maximum number of cached departments
+     * @param ttlMillis how long an entry is served after being cached
+     */
+    public DepartmentCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be greater than zero");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the cached department or null when it is not cached or expired
+     */
+    public Department get(Integer id) {
+        if (id == null) {
+            return null;
+        }
+
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.department;
+            }
+            if (entry != null) {
+                entries.remove(id);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public void put(Department department) {
+        if (department == null || department.getId() == null) {
+            return;
+        }
+
+        synchronized (entries) {
+            entries.put(department.getId(),
+                    new Entry(department, System.currentTimeMillis() + ttlMillis));
+
+            Iterator<Integer> it = entries.keySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public void invalidate(Integer id) {
+        synchronized (entries) {
+            if (entries.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentCache{" + "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations()
+                + ", hitRatio=" + getHitRatio() + '}';
+    }
+
+    private static class Entry {
+
+        private final Department department;
+        private final long expiresAt;
+
+        Entry(Department department, long expiresAt) {
+            this.department = department;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package model.dao.cache;
+
+/**
+ * How {@link CachingSellerDao} chooses the entry to drop when it is full.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public enum EvictionPolicy {
+
+    /**
+     * Drops the least recently used entry.
+     */
+    LRU,
+    /**
+     * Drops the least frequently used entry, the oldest one on ties.
+     */
+    LFU
+
+}
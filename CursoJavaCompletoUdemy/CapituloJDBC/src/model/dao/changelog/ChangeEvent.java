@@ -0,0 +1,65 @@
+package model.dao.changelog;
+
+import java.util.Date;
+
+/**
+ * One row of the change_log table, with the entity it refers to.
+ *
+ * @param <T> Seller or Department
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class ChangeEvent<T> {
+
+    private final long seq;
+    private final ChangeOp op;
+    private final Integer id;
+    private final Date changedAt;
+    private final T entity;
+
+    public ChangeEvent(long seq, ChangeOp op, Integer id, Date changedAt, T entity) {
+        this.seq = seq;
+        this.op = op;
+        this.id = id;
+        this.changedAt = changedAt;
+        this.entity = entity;
+    }
+
+    /**
+     * @return position of the change in the log; the tailer resumes after
+     * the last one it delivered
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    public ChangeOp getOp() {
+        return op;
+    }
+
+    /**
+     * @return id of the row changed
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+    /**
+     * @return the row as it is when the event is delivered, which may already
+     * include later changes; null for a DELETE or when the row was deleted
+     * afterwards (its DELETE event follows)
+     */
+    public T getEntity() {
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" + "seq=" + seq + ", op=" + op + ", id=" + id + ", changedAt=" + changedAt
+                + ", entity=" + entity + '}';
+    }
+
+}
@@ -0,0 +1,21 @@
+package model.dao.changelog;
+
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Receives the changes read by {@link ChangeLogTailer}, in log order.
+ *
+ * If a method throws, the tailer does not store the position of the batch
+ * and delivers it again on the next poll, so the listener should tolerate
+ * seeing an event twice.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public interface ChangeListener {
+
+    public void onSellerChange(ChangeEvent<Seller> event);
+
+    public void onDepartmentChange(ChangeEvent<Department> event);
+
+}
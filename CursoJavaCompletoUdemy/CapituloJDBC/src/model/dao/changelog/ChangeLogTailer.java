@@ -0,0 +1,304 @@
+package model.dao.changelog;
+
+import db.ConnectionPool;
+import db.DB;
+import db.DbException;
+import db.ErrorLog;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Streams the changes of the seller and department tables from the
+ * change_log table, which is filled by the triggers of banco.sql.
+ *
+ * Each {@link #poll} reads up to batchSize log rows after the stored
+ * position, loads the rows they refer to with one findByIds per table,
+ * hands the events to the listener and then stores the Seq of the last one.
+ * SQLite has a single writer, so Seq grows in commit order and a change
+ * committed later never gets a lower Seq than one already delivered.
+ *
+ * A consumer usually reads the whole table once, takes {@link #getLastSeq()}
+ * before that read as its starting position, and from then on applies only
+ * the deltas.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class ChangeLogTailer {
+
+    private static final String SELLER = "seller";
+    private static final String DEPARTMENT = "department";
+
+    private final ConnectionPool readPool;
+    private final ConnectionPool pool;
+    private final SellerDao sellerDao;
+    private final DepartmentDao departmentDao;
+    private final PositionStore positionStore;
+
+    private int batchSize = 500;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+
+    /**
+     * @param readPool pool used to read the log
+     * @param pool pool used by {@link #prune(long)}
+     * @param sellerDao DAO that loads the changed sellers; it should not be
+     * a cached one, or the events may carry stale rows
+     * @param departmentDao DAO that loads the changed departments, also
+     * without cache
+     */
+    public ChangeLogTailer(ConnectionPool readPool, ConnectionPool pool, SellerDao sellerDao,
+            DepartmentDao departmentDao, PositionStore positionStore) {
+        this.readPool = readPool;
+        this.pool = pool;
+        this.sellerDao = sellerDao;
+        this.departmentDao = departmentDao;
+        this.positionStore = positionStore;
+    }
+
+    /**
+     * @param batchSize maximum number of log rows read by each poll
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public PositionStore getPositionStore() {
+        return positionStore;
+    }
+
+    /**
+     * Delivers the next batch of changes to the listener.
+     *
+     * @return number of events delivered, 0 when there was nothing new
+     */
+    public synchronized int poll(ChangeListener listener) {
+        polls.increment();
+
+        List<Entry> entries = read(positionStore.load());
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        Set<Integer> sellerIds = new HashSet<>();
+        Set<Integer> departmentIds = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry.op != ChangeOp.DELETE) {
+                if (SELLER.equals(entry.table)) {
+                    sellerIds.add(entry.rowId);
+                } else if (DEPARTMENT.equals(entry.table)) {
+                    departmentIds.add(entry.rowId);
+                }
+            }
+        }
+        Map<Integer, Seller> sellers = sellerIds.isEmpty()
+                ? Collections.emptyMap() : sellerDao.findByIds(sellerIds);
+        Map<Integer, Department> departments = departmentIds.isEmpty()
+                ? Collections.emptyMap() : departmentDao.findByIds(departmentIds);
+
+        for (Entry entry : entries) {
+            Date changedAt = new Date(entry.changedAt * 1000L);
+            boolean deleted = entry.op == ChangeOp.DELETE;
+            if (SELLER.equals(entry.table)) {
+                listener.onSellerChange(new ChangeEvent<>(entry.seq, entry.op, entry.rowId, changedAt,
+                        deleted ? null : sellers.get(entry.rowId)));
+            } else if (DEPARTMENT.equals(entry.table)) {
+                listener.onDepartmentChange(new ChangeEvent<>(entry.seq, entry.op, entry.rowId, changedAt,
+                        deleted ? null : departments.get(entry.rowId)));
+            }
+        }
+
+        positionStore.save(entries.get(entries.size() - 1).seq);
+        delivered.add(entries.size());
+        return entries.size();
+    }
+
+    /**
+     * Polls until the listener has seen every change committed so far.
+     *
+     * @return number of events delivered
+     */
+    public int drain(ChangeListener listener) {
+        int total = 0;
+        int count;
+        do {
+            count = poll(listener);
+            total += count;
+        } while (count == batchSize);
+        return total;
+    }
+
+    /**
+     * Drains the log every pollIntervalMs in a background thread until
+     * {@link #close()}. Failures are logged and retried on the next round.
+     */
+    public synchronized void start(ChangeListener listener, long pollIntervalMs) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Tailer already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ChangeLogTailer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                drain(listener);
+            } catch (RuntimeException ex) {
+                ErrorLog.error("Change log poll failed", ex);
+            }
+        }, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        ScheduledExecutorService s;
+        synchronized (this) {
+            s = scheduler;
+            scheduler = null;
+        }
+        if (s != null) {
+            s.shutdown();
+            try {
+                s.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return Seq of the last change ever logged, 0 if none; it does not go
+     * back when the log is pruned
+     */
+    public long getLastSeq() {
+        String sql = "SELECT seq FROM sqlite_sequence WHERE name = 'change_log'";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            rs = st.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0L;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Deletes the log rows up to seq, usually the lowest position stored by
+     * the consumers.
+     *
+     * @return number of rows deleted
+     */
+    public int prune(long seq) {
+        String sql = "DELETE FROM change_log WHERE Seq <= ?";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+
+        try {
+            conn = pool.borrow();
+            st = conn.prepareStatement(sql);
+            st.setLong(1, seq);
+            return st.executeUpdate();
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    public long getPolls() {
+        return polls.sum();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    private List<Entry> read(long after) {
+        String sql = "SELECT Seq, TableName, Op, RowId, ChangedAt "
+                + "FROM change_log "
+                + "WHERE Seq > ? "
+                + "ORDER BY Seq "
+                + "LIMIT ?";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            st.setLong(1, after);
+            st.setInt(2, batchSize);
+            rs = st.executeQuery();
+
+            List<Entry> entries = new ArrayList<>();
+            while (rs.next()) {
+                entries.add(new Entry(rs.getLong(1), rs.getString(2), ChangeOp.fromCode(rs.getString(3)),
+                        rs.getInt(4), rs.getLong(5)));
+            }
+            return entries;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeLogTailer{" + "position=" + positionStore.load() + ", polls=" + getPolls()
+                + ", delivered=" + getDelivered() + '}';
+    }
+
+    private static class Entry {
+
+        private final long seq;
+        private final String table;
+        private final ChangeOp op;
+        private final int rowId;
+        private final long changedAt;
+
+        Entry(long seq, String table, ChangeOp op, int rowId, long changedAt) {
+            this.seq = seq;
+            this.table = table;
+            this.op = op;
+            this.rowId = rowId;
+            this.changedAt = changedAt;
+        }
+    }
+
+}
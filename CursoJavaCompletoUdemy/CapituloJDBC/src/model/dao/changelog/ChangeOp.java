@@ -0,0 +1,36 @@
+package model.dao.changelog;
+
+/**
+ * Kind of write recorded in the change_log table.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public enum ChangeOp {
+
+    INSERT("I"),
+    UPDATE("U"),
+    DELETE("D");
+
+    private final String code;
+
+    private ChangeOp(String code) {
+        this.code = code;
+    }
+
+    /**
+     * @return the value of change_log.Op
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public static ChangeOp fromCode(String code) {
+        for (ChangeOp op : values()) {
+            if (op.code.equals(code)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Unknown change_log.Op: " + code);
+    }
+
+}
@@ -0,0 +1,55 @@
+package model.dao.changelog;
+
+import db.DbException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Position kept in a text file. It is written to a temporary file that then
+ * replaces the old one, so a crash leaves either the old or the new position.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class FilePositionStore implements PositionStore {
+
+    private final Path file;
+
+    public FilePositionStore(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public long load() {
+        try {
+            if (!Files.exists(file)) {
+                return 0L;
+            }
+            String text = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+            return text.isEmpty() ? 0L : Long.parseLong(text);
+        } catch (IOException | NumberFormatException ex) {
+            throw new DbException("Could not read the change log position from " + file + ": "
+                    + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void save(long seq) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(tmp, Long.toString(seq).getBytes(StandardCharsets.US_ASCII));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new DbException("Could not write the change log position to " + file + ": "
+                    + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FilePositionStore{" + "file=" + file + '}';
+    }
+
+}
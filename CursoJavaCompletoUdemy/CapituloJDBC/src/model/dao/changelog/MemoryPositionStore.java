@@ -0,0 +1,27 @@
+package model.dao.changelog;
+
+/**
+ * Position kept in memory only, for consumers that rebuild their state on
+ * start (usually starting at {@link ChangeLogTailer#getLastSeq()}).
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class MemoryPositionStore implements PositionStore {
+
+    private volatile long seq;
+
+    public MemoryPositionStore(long seq) {
+        this.seq = seq;
+    }
+
+    @Override
+    public long load() {
+        return seq;
+    }
+
+    @Override
+    public void save(long seq) {
+        this.seq = seq;
+    }
+
+}
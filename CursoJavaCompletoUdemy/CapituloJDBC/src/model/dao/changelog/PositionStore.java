@@ -0,0 +1,18 @@
+package model.dao.changelog;
+
+/**
+ * Keeps the Seq of the last change a {@link ChangeLogTailer} delivered, so a
+ * consumer resumes where it stopped.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public interface PositionStore {
+
+    /**
+     * @return the last Seq delivered, 0 when nothing was delivered yet
+     */
+    public long load();
+
+    public void save(long seq);
+
+}
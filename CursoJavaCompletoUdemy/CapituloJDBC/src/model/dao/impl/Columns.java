@@ -0,0 +1,39 @@
+package model.dao.impl;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Resolves column labels to column indexes.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class Columns {
+
+    private Columns() {
+    }
+
+    /**
+     * @return the index of each label, in the same order. When a label
+     * appears more than once the first column wins, as in
+     * {@code ResultSet.findColumn}.
+     */
+    static int[] resolve(ResultSetMetaData md, String... labels) throws SQLException {
+        int count = md.getColumnCount();
+        int[] indexes = new int[labels.length];
+
+        for (int i = 0; i < labels.length; i++) {
+            for (int col = 1; col <= count && indexes[i] == 0; col++) {
+                if (labels[i].equalsIgnoreCase(md.getColumnLabel(col))) {
+                    indexes[i] = col;
+                }
+            }
+            if (indexes[i] == 0) {
+                throw new SQLException("Column not found: " + labels[i]);
+            }
+        }
+
+        return indexes;
+    }
+
+}
@@ -1,15 +1,23 @@
 package model.dao.impl;
 
+import db.ConnectionPool;
 import db.DB;
 import db.DbException;
+import db.TransactionOptions;
+import db.Transactions;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import model.dao.DepartmentDao;
+import model.dao.cache.DepartmentCache;
 import model.entities.Department;
 
 /**
@@ -18,10 +26,74 @@ import model.entities.Department;
  */
 public class DepartmentDaoJDBC implements DepartmentDao {
 
-    private Connection conn;
+    private ConnectionPool pool;
+    private ConnectionPool readPool;
+    private int batchSize;
+    private DepartmentCache departmentCache;
+    private Consumer<Integer> onChange = id -> {
+    };
+    private TransactionOptions transactionOptions = new TransactionOptions();
+    private final MapperCache<DepartmentRowMapper> mappers = new MapperCache<>(DepartmentRowMapper::new);
+
+    public DepartmentDaoJDBC(ConnectionPool pool) {
+        this(pool, JdbcBatch.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize number of rows sent in each JDBC batch by
+     * {@link #insertAll}, {@link #updateAll} and {@link #deleteByIds}
+     */
+    public DepartmentDaoJDBC(ConnectionPool pool, int batchSize) {
+        this(pool, pool, batchSize);
+    }
+
+    /**
+     * @param readPool pool used by the queries, such as {@code DB.getReadPool()}
+     * @param pool pool used by the writes
+     */
+    public DepartmentDaoJDBC(ConnectionPool readPool, ConnectionPool pool, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        this.readPool = readPool;
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param departmentCache cache used by findById and evicted by the
+     * writes, or null to always read from the database
+     */
+    public void setDepartmentCache(DepartmentCache departmentCache) {
+        this.departmentCache = departmentCache;
+    }
 
-    public DepartmentDaoJDBC(Connection conn) {
-        this.conn = conn;
+    /**
+     * @param onChange called with the id of every department updated or
+     * deleted, after the write, so caches holding copies of it, such as the
+     * departments of cached sellers, can drop them
+     */
+    public void setOnChange(Consumer<Integer> onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * @param transactionOptions retry settings of the transactions opened by
+     * {@link #insertAll}, {@link #updateAll} and {@link #deleteByIds}
+     */
+    public void setTransactionOptions(TransactionOptions transactionOptions) {
+        this.transactionOptions = transactionOptions;
+    }
+
+    private TransactionOptions transactionOptions(String name) {
+        return transactionOptions.copy().setName(name);
+    }
+
+    private void evict(Integer id) {
+        if (departmentCache != null) {
+            departmentCache.invalidate(id);
+        }
+        onChange.accept(id);
     }
 
     @Override
@@ -29,9 +101,11 @@ public class DepartmentDaoJDBC implements DepartmentDao {
         String sql = "INSERT INTO department"
                 + " (Name) VALUES (?)";
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            conn = pool.borrow();
             st = conn.prepareStatement(sql,
                     Statement.RETURN_GENERATED_KEYS);
 
@@ -49,9 +123,50 @@ public class DepartmentDaoJDBC implements DepartmentDao {
                 throw new DbException("No rows affected");
             }
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public boolean upsert(Department obj) {
+        if (obj.getId() == null) {
+            insert(obj);
+            return true;
+        }
+
+        String sql = "INSERT INTO department"
+                + " (Id, Name) VALUES (?,?)"
+                + " ON CONFLICT (Id) DO UPDATE SET Name=excluded.Name";
+
+        try {
+            return Transactions.run(pool, transactionOptions("department.upsert"), conn -> {
+                PreparedStatement st = null;
+                ResultSet rs = null;
+                try {
+                    st = conn.prepareStatement("SELECT 1 FROM department WHERE Id=?");
+                    st.setInt(1, obj.getId());
+                    rs = st.executeQuery();
+                    boolean exists = rs.next();
+                    DB.closeResultSet(rs);
+                    DB.closeStatement(st);
+                    rs = null;
+
+                    st = conn.prepareStatement(sql);
+                    st.setInt(1, obj.getId());
+                    st.setString(2, obj.getName());
+                    st.executeUpdate();
+
+                    return !exists;
+                } finally {
+                    DB.closeResultSet(rs);
+                    DB.closeStatement(st);
+                }
+            });
+        } finally {
+            evict(obj.getId());
         }
     }
 
@@ -60,9 +175,11 @@ public class DepartmentDaoJDBC implements DepartmentDao {
         String sql = "UPDATE department SET"
                 + " Name=? WHERE Id=?";
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            conn = pool.borrow();
             st = conn.prepareStatement(sql,
                     Statement.RETURN_GENERATED_KEYS);
 
@@ -70,67 +187,256 @@ public class DepartmentDaoJDBC implements DepartmentDao {
             st.setInt(2, obj.getId());
 
             int rowsAffected = st.executeUpdate();
+            evict(obj.getId());
 
             if (rowsAffected == 0) {
                 throw new DbException("No rows affected");
             }
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Department> list) {
+        String sql = "INSERT INTO department"
+                + " (Name) VALUES (?)";
+
+        Transactions.run(pool, transactionOptions("department.insertAll"), conn -> {
+            PreparedStatement st = null;
+            try {
+                st = conn.prepareStatement(sql,
+                        Statement.RETURN_GENERATED_KEYS);
+
+                List<Department> chunk = new ArrayList<>(batchSize);
+                for (Department obj : list) {
+                    st.setString(1, obj.getName());
+                    st.addBatch();
+                    chunk.add(obj);
+
+                    if (chunk.size() == batchSize) {
+                        insertChunk(st, chunk);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    insertChunk(st, chunk);
+                }
+
+                return null;
+            } finally {
+                DB.closeStatement(st);
+            }
+        });
+    }
+
+    private void insertChunk(PreparedStatement st, List<Department> chunk) throws SQLException {
+        int[] ids = JdbcBatch.executeInsert(st, chunk.size());
+        for (int i = 0; i < ids.length; i++) {
+            chunk.get(i).setId(ids[i]);
+        }
+        chunk.clear();
+    }
+
+    @Override
+    public void updateAll(Collection<Department> list) {
+        String sql = "UPDATE department SET"
+                + " Name=? WHERE Id=?";
+
+        try {
+            Transactions.run(pool, transactionOptions("department.updateAll"), conn -> {
+                PreparedStatement st = null;
+                try {
+                    st = conn.prepareStatement(sql);
+
+                    int pending = 0;
+                    for (Department obj : list) {
+                        st.setString(1, obj.getName());
+                        st.setInt(2, obj.getId());
+                        st.addBatch();
+
+                        if (++pending == batchSize) {
+                            JdbcBatch.executeUpdate(st);
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        JdbcBatch.executeUpdate(st);
+                    }
+
+                    return null;
+                } finally {
+                    DB.closeStatement(st);
+                }
+            });
+        } finally {
+            for (Department obj : list) {
+                evict(obj.getId());
+            }
+        }
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        String sql = "DELETE FROM department WHERE Id=?";
+
+        try {
+            Transactions.run(pool, transactionOptions("department.deleteByIds"), conn -> {
+                PreparedStatement st = null;
+                try {
+                    st = conn.prepareStatement(sql);
+
+                    int pending = 0;
+                    for (Integer id : ids) {
+                        st.setInt(1, id);
+                        st.addBatch();
+
+                        if (++pending == batchSize) {
+                            st.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        st.executeBatch();
+                    }
+
+                    return null;
+                } finally {
+                    DB.closeStatement(st);
+                }
+            });
+        } finally {
+            for (Integer id : ids) {
+                evict(id);
+            }
         }
     }
 
     @Override
     public void deleteById(Integer id) {
         String sql = "DELETE FROM department WHERE Id=?";
+
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            conn = pool.borrow();
             st = conn.prepareStatement(sql);
             st.setInt(1, id);
 
             st.executeUpdate();
+            evict(id);
         } catch (SQLException ex) {
-            throw new DbException(ex.getMessage());
+            throw DbException.from(ex);
         } finally {
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
     @Override
     public Department findById(Integer id) {
+        if (departmentCache != null) {
+            Department dep = departmentCache.get(id);
+            if (dep != null) {
+                return dep;
+            }
+        }
+
         String sql = "SELECT * "
                 + "From department "
                 + "Where Id = ?";
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
+            conn = readPool.borrow();
             st = conn.prepareStatement(sql);
 
             st.setInt(1, id);
             rs = st.executeQuery();
+            DepartmentRowMapper mapper = mappers.get(sql, rs);
 
             if (rs.next()) {
-                return instantiateDepartment(rs);
+                Department dep = mapper.mapRow(rs);
+                if (departmentCache != null) {
+                    departmentCache.put(dep);
+                }
+                return dep;
             }
 
             return null;
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
-            DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
-    private Department instantiateDepartment(ResultSet rs) throws SQLException {
-        Department dep = new Department();
-        dep.setId(rs.getInt("Id"));
-        dep.setName(rs.getString("Name"));
-        return dep;
+    @Override
+    public Map<Integer, Department> findByIds(Collection<Integer> ids) {
+        String sql = "SELECT * "
+                + "From department "
+                + "Where Id IN ";
+
+        Map<Integer, Department> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : InClause.distinct(ids)) {
+            Department dep = departmentCache != null ? departmentCache.get(id) : null;
+            if (dep != null) {
+                result.put(id, dep);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+
+            int from = 0;
+            while (from < missing.size()) {
+                int arity = InClause.arity(missing.size() - from);
+                st = conn.prepareStatement(sql + InClause.placeholders(arity));
+                from += InClause.bind(st, missing, from, arity);
+
+                rs = st.executeQuery();
+                DepartmentRowMapper mapper = mappers.get(sql, rs);
+
+                while (rs.next()) {
+                    Department dep = mapper.mapRow(rs);
+                    if (departmentCache != null) {
+                        departmentCache.put(dep);
+                    }
+                    result.put(dep.getId(), dep);
+                }
+
+                DB.closeResultSet(rs);
+                DB.closeStatement(st);
+                rs = null;
+                st = null;
+            }
+
+            return result;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
     }
 
     @Override
@@ -139,25 +445,91 @@ public class DepartmentDaoJDBC implements DepartmentDao {
                 + "From department "
                 + "ORDER BY Name";
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
+            conn = readPool.borrow();
             st = conn.prepareStatement(sql);
             rs = st.executeQuery();
+            DepartmentRowMapper mapper = mappers.get(sql, rs);
 
             List<Department> list = new ArrayList<>();
 
             while (rs.next()) {
-                list.add(instantiateDepartment(rs));
+                list.add(mapper.mapRow(rs));
             }
 
             return list;
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public List<Department> findPage(String afterName, Integer afterId, int limit) {
+        String firstPageSql = "SELECT * "
+                + "From department "
+                + "ORDER BY Name, Id "
+                + "LIMIT ?";
+        // SQLite sorts NULL before any text, so after a NULL name come the
+        // other NULL names with a greater Id and then every named department
+        String afterNullSql = "SELECT * "
+                + "From department "
+                + "Where (Name Is Null And Id > ?) Or Name Is Not Null "
+                + "ORDER BY Name, Id "
+                + "LIMIT ?";
+        String nextPageSql = "SELECT * "
+                + "From department "
+                + "Where (Name, Id) > (?, ?) "
+                + "ORDER BY Name, Id "
+                + "LIMIT ?";
+
+        if (afterId == null && afterName != null) {
+            throw new IllegalArgumentException("afterId is required with afterName");
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+
+            if (afterId == null) {
+                st = conn.prepareStatement(firstPageSql);
+                st.setInt(1, limit);
+            } else if (afterName == null) {
+                st = conn.prepareStatement(afterNullSql);
+                st.setInt(1, afterId);
+                st.setInt(2, limit);
+            } else {
+                st = conn.prepareStatement(nextPageSql);
+                st.setString(1, afterName);
+                st.setInt(2, afterId);
+                st.setInt(3, limit);
+            }
+            rs = st.executeQuery();
+            DepartmentRowMapper mapper = mappers.get(firstPageSql, rs);
+
+            List<Department> list = new ArrayList<>(limit);
+
+            while (rs.next()) {
+                list.add(mapper.mapRow(rs));
+            }
+
+            return list;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
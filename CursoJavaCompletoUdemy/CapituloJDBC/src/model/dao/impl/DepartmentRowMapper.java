@@ -0,0 +1,44 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import model.entities.Department;
+
+/**
+ * Maps department columns, either from the department table or from the
+ * department columns joined into a seller query.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class DepartmentRowMapper implements RowMapper<Department> {
+
+    private final int id;
+    private final int name;
+
+    /**
+     * Maps the Id and Name columns of the department table.
+     */
+    public DepartmentRowMapper(ResultSetMetaData md) throws SQLException {
+        this(md, "Id", "Name");
+    }
+
+    public DepartmentRowMapper(ResultSetMetaData md, String idLabel, String nameLabel) throws SQLException {
+        int[] indexes = Columns.resolve(md, idLabel, nameLabel);
+        id = indexes[0];
+        name = indexes[1];
+    }
+
+    public int getId(ResultSet rs) throws SQLException {
+        return rs.getInt(id);
+    }
+
+    @Override
+    public Department mapRow(ResultSet rs) throws SQLException {
+        Department dep = new Department();
+        dep.setId(rs.getInt(id));
+        dep.setName(rs.getString(name));
+        return dep;
+    }
+
+}
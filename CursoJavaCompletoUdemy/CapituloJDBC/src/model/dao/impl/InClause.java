@@ -0,0 +1,85 @@
+package model.dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Builds {@code IN (?, ?, ...)} lists with a few fixed sizes, so a query by
+ * many ids (or other keys, such as emails) is sent in chunks that reuse at
+ * most {@code ARITIES.length} prepared statements. The last chunk is padded
+ * by repeating its last id.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class InClause {
+
+    static final int[] ARITIES = {1, 4, 16, 64, 256};
+
+    private static final String[] PLACEHOLDERS = new String[ARITIES.length];
+
+    static {
+        for (int i = 0; i < ARITIES.length; i++) {
+            StringBuilder sb = new StringBuilder("(");
+            for (int j = 0; j < ARITIES[i]; j++) {
+                sb.append(j == 0 ? "?" : ",?");
+            }
+            PLACEHOLDERS[i] = sb.append(')').toString();
+        }
+    }
+
+    private InClause() {
+    }
+
+    /**
+     * @return the ids without nulls and repetitions, in their original order
+     */
+    static <T> List<T> distinct(Collection<T> ids) {
+        LinkedHashSet<T> set = new LinkedHashSet<>(ids);
+        set.remove(null);
+        return new ArrayList<>(set);
+    }
+
+    /**
+     * @return the size of the chunk used for the given number of ids still to
+     * be read
+     */
+    static int arity(int remaining) {
+        for (int arity : ARITIES) {
+            if (arity >= remaining) {
+                return arity;
+            }
+        }
+        return ARITIES[ARITIES.length - 1];
+    }
+
+    /**
+     * @return "(?,?,...)" with the given arity, one of {@link #ARITIES}
+     */
+    static String placeholders(int arity) {
+        for (int i = 0; i < ARITIES.length; i++) {
+            if (ARITIES[i] == arity) {
+                return PLACEHOLDERS[i];
+            }
+        }
+        throw new IllegalArgumentException("Unsupported arity: " + arity);
+    }
+
+    /**
+     * Binds ids[from .. from + arity) starting at parameter 1, repeating the
+     * last id when there are fewer ids left than the arity.
+     *
+     * @return how many ids were consumed
+     */
+    static int bind(PreparedStatement st, List<?> ids, int from, int arity) throws SQLException {
+        int count = Math.min(arity, ids.size() - from);
+        for (int i = 0; i < arity; i++) {
+            st.setObject(i + 1, ids.get(from + Math.min(i, count - 1)));
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,77 @@
+package model.dao.impl;
+
+import db.DB;
+import db.DbException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers shared by the batch operations of the JDBC DAOs.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class JdbcBatch {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private JdbcBatch() {
+    }
+
+    /**
+     * Executes the batch of INSERTs queued in {@code st} and returns the id
+     * generated for each of the {@code count} rows, in order.
+     *
+     * The SQLite driver only reports the last generated key of a batch. As
+     * the batch runs inside one write transaction, nobody else can insert in
+     * between and the AUTOINCREMENT ids of the batch are consecutive, so the
+     * missing ids are derived from the last one.
+     */
+    static int[] executeInsert(PreparedStatement st, int count) throws SQLException {
+        int[] rowsAffected = st.executeBatch();
+        if (rowsAffected.length != count) {
+            throw new DbException("Expected " + count + " rows in batch, got " + rowsAffected.length);
+        }
+
+        List<Integer> keys = new ArrayList<>(count);
+        ResultSet rs = st.getGeneratedKeys();
+        try {
+            while (rs.next()) {
+                keys.add(rs.getInt(1));
+            }
+        } finally {
+            DB.closeResultSet(rs);
+        }
+
+        int[] ids = new int[count];
+        if (keys.size() == count) {
+            for (int i = 0; i < count; i++) {
+                ids[i] = keys.get(i);
+            }
+        } else if (!keys.isEmpty()) {
+            int last = keys.get(keys.size() - 1);
+            for (int i = 0; i < count; i++) {
+                ids[i] = last - (count - 1 - i);
+            }
+        } else {
+            throw new DbException("No generated keys returned by batch insert");
+        }
+        return ids;
+    }
+
+    /**
+     * Executes the batch of UPDATEs queued in {@code st}, failing if one of
+     * them did not touch any row.
+     */
+    static void executeUpdate(PreparedStatement st) throws SQLException {
+        int[] rowsAffected = st.executeBatch();
+        for (int rows : rowsAffected) {
+            if (rows == 0) {
+                throw new DbException("No rows affected");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Row mappers of a DAO, one per query.
+ *
+ * A mapper resolves its column indexes from the ResultSetMetaData, which
+ * costs as much as reading a short result. The columns of a query do not
+ * change from one run to the next, so the mapper built for the first result
+ * of a SQL text is kept and reused by the following runs.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class MapperCache<M> {
+
+    interface Factory<M> {
+
+        M create(ResultSetMetaData md) throws SQLException;
+    }
+
+    private final Factory<M> factory;
+    private final Map<String, M> mappers = new ConcurrentHashMap<>();
+
+    MapperCache(Factory<M> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @param sql query that produced rs, or any query with the same columns
+     */
+    M get(String sql, ResultSet rs) throws SQLException {
+        M mapper = mappers.get(sql);
+        if (mapper == null) {
+            mapper = factory.create(rs.getMetaData());
+            M other = mappers.putIfAbsent(sql, mapper);
+            if (other != null) {
+                mapper = other;
+            }
+        }
+        return mapper;
+    }
+
+}
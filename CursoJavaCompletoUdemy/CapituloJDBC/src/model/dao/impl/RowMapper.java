@@ -0,0 +1,18 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to an entity.
+ *
+ * Implementations resolve the column indexes once, from the
+ * ResultSetMetaData of the query, and read every row by index.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public interface RowMapper<T> {
+
+    public T mapRow(ResultSet rs) throws SQLException;
+
+}
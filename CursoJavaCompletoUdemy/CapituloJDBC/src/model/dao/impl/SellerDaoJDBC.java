@@ -1,20 +1,34 @@
 package model.dao.impl;
 
+import db.ConnectionPool;
 import db.DB;
 import db.DbException;
+import db.TransactionOptions;
+import db.Transactions;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import model.dao.SellerDao;
+import model.dao.UpsertResult;
+import model.dao.cache.DepartmentCache;
 import model.entities.Department;
+import model.entities.SalaryStats;
 import model.entities.Seller;
+import model.entities.SellerColumns;
+import model.entities.YearHistogram;
 
 /**
  *
@@ -22,10 +36,64 @@ import model.entities.Seller;
  */
 public class SellerDaoJDBC implements SellerDao {
 
-    private Connection conn;
+    private ConnectionPool pool;
+    private ConnectionPool readPool;
+    private int batchSize;
+    private int fetchSize = 500;
+    private TransactionOptions transactionOptions = new TransactionOptions();
+    private DepartmentCache departmentCache;
+    private final MapperCache<SellerRowMapper> mappers = new MapperCache<>(SellerRowMapper::new);
 
-    public SellerDaoJDBC(Connection conn) {
-        this.conn = conn;
+    public SellerDaoJDBC(ConnectionPool pool) {
+        this(pool, JdbcBatch.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize number of rows sent in each JDBC batch by
+     * {@link #insertAll}, {@link #updateAll} and {@link #deleteByIds}
+     */
+    public SellerDaoJDBC(ConnectionPool pool, int batchSize) {
+        this(pool, pool, batchSize);
+    }
+
+    /**
+     * @param readPool pool used by the queries, such as {@code DB.getReadPool()}
+     * @param pool pool used by the writes
+     */
+    public SellerDaoJDBC(ConnectionPool readPool, ConnectionPool pool, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        this.readPool = readPool;
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param fetchSize rows fetched per round trip by the streaming queries
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param departmentCache cache shared with DepartmentDaoJDBC, or null to
+     * build the department of every row
+     */
+    public void setDepartmentCache(DepartmentCache departmentCache) {
+        this.departmentCache = departmentCache;
+    }
+
+    /**
+     * @param transactionOptions retry settings of the transactions opened by
+     * {@link #insertAll}, {@link #updateAll} and {@link #deleteByIds}
+     */
+    public void setTransactionOptions(TransactionOptions transactionOptions) {
+        this.transactionOptions = transactionOptions;
+    }
+
+    private TransactionOptions transactionOptions(String name) {
+        return transactionOptions.copy().setName(name);
     }
 
     @Override
@@ -34,17 +102,15 @@ public class SellerDaoJDBC implements SellerDao {
                 + " (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES"
                 + " (?,?,?,?,?)";
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            conn = pool.borrow();
             st = conn.prepareStatement(sql,
                     Statement.RETURN_GENERATED_KEYS);
 
-            st.setString(1, obj.getName());
-            st.setString(2, obj.getEmail());
-            st.setLong(3, obj.getBirthDate().getTime() / 1000L);
-            st.setDouble(4, obj.getBaseSalary());
-            st.setInt(5, obj.getDepartment().getId());
+            bindSeller(st, obj);
 
             int rowsAffected = st.executeUpdate();
 
@@ -58,9 +124,10 @@ public class SellerDaoJDBC implements SellerDao {
                 throw new DbException("No rows affected");
             }
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
@@ -70,17 +137,15 @@ public class SellerDaoJDBC implements SellerDao {
                 + " Name=?, Email=?, BirthDate=?, BaseSalary=?, DepartmentId=?"
                 + " WHERE Id=?";
 
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            conn = pool.borrow();
             st = conn.prepareStatement(sql,
                     Statement.RETURN_GENERATED_KEYS);
 
-            st.setString(1, obj.getName());
-            st.setString(2, obj.getEmail());
-            st.setLong(3, obj.getBirthDate().getTime() / 1000L);
-            st.setDouble(4, obj.getBaseSalary());
-            st.setInt(5, obj.getDepartment().getId());
+            bindSeller(st, obj);
             st.setInt(6, obj.getId());
 
             int rowsAffected = st.executeUpdate();
@@ -89,26 +154,243 @@ public class SellerDaoJDBC implements SellerDao {
                 throw new DbException("No rows affected");
             }
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Seller> list) {
+        String sql = "INSERT INTO seller"
+                + " (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES"
+                + " (?,?,?,?,?)";
+
+        Transactions.run(pool, transactionOptions("seller.insertAll"), conn -> {
+            PreparedStatement st = null;
+            try {
+                st = conn.prepareStatement(sql,
+                        Statement.RETURN_GENERATED_KEYS);
+
+                List<Seller> chunk = new ArrayList<>(batchSize);
+                for (Seller obj : list) {
+                    bindSeller(st, obj);
+                    st.addBatch();
+                    chunk.add(obj);
+
+                    if (chunk.size() == batchSize) {
+                        insertChunk(st, chunk);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    insertChunk(st, chunk);
+                }
+
+                return null;
+            } finally {
+                DB.closeStatement(st);
+            }
+        });
+    }
+
+    private void insertChunk(PreparedStatement st, List<Seller> chunk) throws SQLException {
+        int[] ids = JdbcBatch.executeInsert(st, chunk.size());
+        for (int i = 0; i < ids.length; i++) {
+            chunk.get(i).setId(ids[i]);
+        }
+        chunk.clear();
+    }
+
+    @Override
+    public void updateAll(Collection<Seller> list) {
+        String sql = "UPDATE seller SET"
+                + " Name=?, Email=?, BirthDate=?, BaseSalary=?, DepartmentId=?"
+                + " WHERE Id=?";
+
+        Transactions.run(pool, transactionOptions("seller.updateAll"), conn -> {
+            PreparedStatement st = null;
+            try {
+                st = conn.prepareStatement(sql);
+
+                int pending = 0;
+                for (Seller obj : list) {
+                    bindSeller(st, obj);
+                    st.setInt(6, obj.getId());
+                    st.addBatch();
+
+                    if (++pending == batchSize) {
+                        JdbcBatch.executeUpdate(st);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    JdbcBatch.executeUpdate(st);
+                }
+
+                return null;
+            } finally {
+                DB.closeStatement(st);
+            }
+        });
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        String sql = "DELETE FROM seller WHERE Id=?";
+
+        Transactions.run(pool, transactionOptions("seller.deleteByIds"), conn -> {
+            PreparedStatement st = null;
+            try {
+                st = conn.prepareStatement(sql);
+
+                int pending = 0;
+                for (Integer id : ids) {
+                    st.setInt(1, id);
+                    st.addBatch();
+
+                    if (++pending == batchSize) {
+                        st.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    st.executeBatch();
+                }
+
+                return null;
+            } finally {
+                DB.closeStatement(st);
+            }
+        });
+    }
+
+    @Override
+    public boolean upsert(Seller obj) {
+        return upsertAll(Collections.singletonList(obj)).getInsertedCount() > 0;
+    }
+
+    @Override
+    public UpsertResult upsertAll(Collection<Seller> list) {
+        String sql = "INSERT INTO seller"
+                + " (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES"
+                + " (?,?,?,?,?)"
+                + " ON CONFLICT (Email) DO UPDATE SET"
+                + " Name=excluded.Name, BirthDate=excluded.BirthDate,"
+                + " BaseSalary=excluded.BaseSalary, DepartmentId=excluded.DepartmentId";
+
+        return Transactions.run(pool, transactionOptions("seller.upsertAll"), conn -> {
+            List<Integer> inserted = new ArrayList<>();
+            List<Integer> updated = new ArrayList<>();
+            PreparedStatement st = null;
+            try {
+                st = conn.prepareStatement(sql);
+
+                List<Seller> chunk = new ArrayList<>(batchSize);
+                for (Seller obj : list) {
+                    bindSeller(st, obj);
+                    st.addBatch();
+                    chunk.add(obj);
+
+                    if (chunk.size() == batchSize) {
+                        upsertChunk(conn, st, chunk, inserted, updated);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    upsertChunk(conn, st, chunk, inserted, updated);
+                }
+
+                return new UpsertResult(inserted, updated);
+            } finally {
+                DB.closeStatement(st);
+            }
+        });
+    }
+
+    /**
+     * Executes the batch of upserts queued in {@code st}. SQLite does not
+     * tell whether an upsert inserted or updated, so the emails that already
+     * exist are read before the batch and the ids of the new rows after it;
+     * both reads see only this transaction's writes.
+     */
+    private void upsertChunk(Connection conn, PreparedStatement st, List<Seller> chunk,
+            List<Integer> inserted, List<Integer> updated) throws SQLException {
+        List<String> emails = new ArrayList<>(chunk.size());
+        for (Seller obj : chunk) {
+            emails.add(obj.getEmail());
+        }
+        Map<String, Integer> existing = findIdsByEmail(conn, emails);
+
+        JdbcBatch.executeUpdate(st);
+
+        List<String> created = new ArrayList<>();
+        for (String email : emails) {
+            if (!existing.containsKey(email)) {
+                created.add(email);
+            }
+        }
+        Map<String, Integer> createdIds = findIdsByEmail(conn, created);
+
+        for (Seller obj : chunk) {
+            Integer id = existing.get(obj.getEmail());
+            if (id != null) {
+                updated.add(id);
+            } else {
+                // a repeated email is inserted once, then updated
+                id = createdIds.get(obj.getEmail());
+                existing.put(obj.getEmail(), id);
+                inserted.add(id);
+            }
+            obj.setId(id);
+        }
+        chunk.clear();
+    }
+
+    private Map<String, Integer> findIdsByEmail(Connection conn, List<String> emails) throws SQLException {
+        String sql = "SELECT Id, Email FROM seller WHERE Email IN ";
+
+        List<String> distinct = InClause.distinct(emails);
+        Map<String, Integer> result = new HashMap<>();
+
+        int from = 0;
+        while (from < distinct.size()) {
+            int arity = InClause.arity(distinct.size() - from);
+            PreparedStatement st = null;
+            ResultSet rs = null;
+            try {
+                st = conn.prepareStatement(sql + InClause.placeholders(arity));
+                from += InClause.bind(st, distinct, from, arity);
+
+                rs = st.executeQuery();
+                while (rs.next()) {
+                    result.put(rs.getString(2), rs.getInt(1));
+                }
+            } finally {
+                DB.closeResultSet(rs);
+                DB.closeStatement(st);
+            }
         }
+        return result;
     }
 
     @Override
     public void deleteById(Integer id) {
         String sql = "DELETE FROM seller WHERE Id=?";
+
+        Connection conn = null;
         PreparedStatement st = null;
 
         try {
+            conn = pool.borrow();
             st = conn.prepareStatement(sql);
             st.setInt(1, id);
 
             st.executeUpdate();
         } catch (SQLException ex) {
-            throw new DbException(ex.getMessage());
+            throw DbException.from(ex);
         } finally {
             DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
@@ -121,47 +403,116 @@ public class SellerDaoJDBC implements SellerDao {
                 + "On seller.DepartmentId = department.Id "
                 + "Where seller.Id = ?";
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
+            conn = readPool.borrow();
             st = conn.prepareStatement(sql);
 
             st.setInt(1, id);
             rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.get(sql, rs);
 
             if (rs.next()) {
-                Department dep = instantiateDepartment(rs);
-                Seller obj = instantiateSeller(rs, dep);
+                Department dep = resolveDepartment(rs, mapper);
+                Seller obj = mapper.mapRow(rs, dep);
 
                 return obj;
             }
 
             return null;
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public Map<Integer, Seller> findByIds(Collection<Integer> ids) {
+        String sql = "SELECT "
+                + "seller.*, "
+                + "department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id "
+                + "Where seller.Id IN ";
+
+        List<Integer> distinct = InClause.distinct(ids);
+        Map<Integer, Seller> result = new HashMap<>();
+        if (distinct.isEmpty()) {
+            return result;
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            Map<Integer, Department> map = new HashMap<>();
+
+            int from = 0;
+            while (from < distinct.size()) {
+                int arity = InClause.arity(distinct.size() - from);
+                st = conn.prepareStatement(sql + InClause.placeholders(arity));
+                from += InClause.bind(st, distinct, from, arity);
+
+                rs = st.executeQuery();
+                SellerRowMapper mapper = mappers.get(sql, rs);
+
+                while (rs.next()) {
+                    Department dep = map.get(mapper.getDepartmentId(rs));
+                    if (dep == null) {
+                        dep = resolveDepartment(rs, mapper);
+                        map.put(dep.getId(), dep);
+                    }
+
+                    Seller obj = mapper.mapRow(rs, dep);
+                    result.put(obj.getId(), obj);
+                }
+
+                DB.closeResultSet(rs);
+                DB.closeStatement(st);
+                rs = null;
+                st = null;
+            }
+
+            return result;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
-    private Seller instantiateSeller(ResultSet rs, Department dep) throws SQLException {
-        Seller obj = new Seller();
-        obj.setId(rs.getInt("Id"));
-        obj.setName(rs.getString("Name"));
-        obj.setEmail(rs.getString("Email"));
-        obj.setBaseSalary(rs.getDouble("BaseSalary"));
-        System.out.println(rs.getLong("BirthDate") * 1000L);
-        obj.setBirthDate(new Date(rs.getLong("BirthDate") * 1000L));
-        obj.setDepartment(dep);
-        return obj;
+    private void bindSeller(PreparedStatement st, Seller obj) throws SQLException {
+        st.setString(1, obj.getName());
+        st.setString(2, obj.getEmail());
+        st.setLong(3, obj.getBirthDate().getTime() / 1000L);
+        st.setDouble(4, obj.getBaseSalary());
+        st.setInt(5, obj.getDepartment().getId());
     }
 
-    private Department instantiateDepartment(ResultSet rs) throws SQLException {
-        Department dep = new Department();
-        dep.setId(rs.getInt("DepartmentId"));
-        dep.setName(rs.getString("DepName"));
+    /**
+     * Returns the cached department of the current row, caching the one built
+     * from the row when it is not cached yet.
+     */
+    private Department resolveDepartment(ResultSet rs, SellerRowMapper mapper) throws SQLException {
+        if (departmentCache == null) {
+            return mapper.mapDepartment(rs);
+        }
+
+        Department dep = departmentCache.get(mapper.getDepartmentId(rs));
+        if (dep == null) {
+            dep = mapper.mapDepartment(rs);
+            departmentCache.put(dep);
+        }
         return dep;
     }
 
@@ -174,32 +525,36 @@ public class SellerDaoJDBC implements SellerDao {
                 + "On seller.DepartmentId = department.Id "
                 + "ORDER BY Name";
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
+            conn = readPool.borrow();
             st = conn.prepareStatement(sql);
             rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.get(sql, rs);
 
             List<Seller> list = new ArrayList<>();
             Map<Integer, Department> map = new HashMap<>();
 
             while (rs.next()) {
-                Department dep = map.get(rs.getInt("DepartmentId"));
+                Department dep = map.get(mapper.getDepartmentId(rs));
                 if (dep == null) {
-                    dep = instantiateDepartment(rs);
+                    dep = resolveDepartment(rs, mapper);
                     map.put(dep.getId(), dep);
                 }
 
-                list.add(instantiateSeller(rs, dep));
+                list.add(mapper.mapRow(rs, dep));
             }
 
             return list;
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
         } finally {
-            DB.closeStatement(st);
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
         }
     }
 
@@ -213,34 +568,428 @@ public class SellerDaoJDBC implements SellerDao {
                 + "Where DepartmentId = ?"
                 + "ORDER BY Name";
 
+        Connection conn = null;
         PreparedStatement st = null;
         ResultSet rs = null;
 
         try {
+            conn = readPool.borrow();
             st = conn.prepareStatement(sql);
 
             st.setInt(1, department.getId());
             rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.get(sql, rs);
 
             List<Seller> list = new ArrayList<>();
             Map<Integer, Department> map = new HashMap<>();
 
             while (rs.next()) {
-                Department dep = map.get(rs.getInt("DepartmentId"));
+                Department dep = map.get(mapper.getDepartmentId(rs));
+                if (dep == null) {
+                    dep = resolveDepartment(rs, mapper);
+                    map.put(dep.getId(), dep);
+                }
+
+                list.add(mapper.mapRow(rs, dep));
+            }
+
+            return list;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public List<Seller> findPage(String afterName, Integer afterId, int limit) {
+        String firstPageSql = "SELECT "
+                + "seller.*, "
+                + "department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id "
+                + "ORDER BY seller.Name, seller.Id "
+                + "LIMIT ?";
+        String nextPageSql = "SELECT "
+                + "seller.*, "
+                + "department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id "
+                + "Where (seller.Name, seller.Id) > (?, ?) "
+                + "ORDER BY seller.Name, seller.Id "
+                + "LIMIT ?";
+
+        if ((afterName == null) != (afterId == null)) {
+            throw new IllegalArgumentException("afterName and afterId must be both null or both set");
+        }
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+
+            if (afterName == null) {
+                st = conn.prepareStatement(firstPageSql);
+                st.setInt(1, limit);
+            } else {
+                st = conn.prepareStatement(nextPageSql);
+                st.setString(1, afterName);
+                st.setInt(2, afterId);
+                st.setInt(3, limit);
+            }
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.get(firstPageSql, rs);
+
+            List<Seller> list = new ArrayList<>(limit);
+            Map<Integer, Department> map = new HashMap<>();
+
+            while (rs.next()) {
+                Department dep = map.get(mapper.getDepartmentId(rs));
+                if (dep == null) {
+                    dep = resolveDepartment(rs, mapper);
+                    map.put(dep.getId(), dep);
+                }
+
+                list.add(mapper.mapRow(rs, dep));
+            }
+
+            return list;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public List<Seller> findRange(int offset, int limit) {
+        String sql = "SELECT "
+                + "seller.*, "
+                + "department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id "
+                + "ORDER BY seller.Name, seller.Id "
+                + "LIMIT ? OFFSET ?";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+
+            st = conn.prepareStatement(sql);
+            st.setInt(1, limit);
+            st.setInt(2, offset);
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.get(sql, rs);
+
+            List<Seller> list = new ArrayList<>(limit);
+            Map<Integer, Department> map = new HashMap<>();
+
+            while (rs.next()) {
+                Department dep = map.get(mapper.getDepartmentId(rs));
                 if (dep == null) {
-                    dep = instantiateDepartment(rs);
+                    dep = resolveDepartment(rs, mapper);
                     map.put(dep.getId(), dep);
                 }
 
-                list.add(instantiateSeller(rs, dep));
+                list.add(mapper.mapRow(rs, dep));
             }
 
             return list;
         } catch (SQLException e) {
-            throw new DbException(e.getMessage());
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public SellerColumns findAllColumns() {
+        String sql = "SELECT "
+                + "seller.Id, seller.Name, seller.BirthDate, seller.BaseSalary, "
+                + "seller.DepartmentId, department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            st.setFetchSize(fetchSize);
+            rs = st.executeQuery();
+
+            SellerColumns columns = new SellerColumns();
+            int lastDepartmentId = 0;
+            int departmentCode = -1;
+
+            while (rs.next()) {
+                int departmentId = rs.getInt(5);
+                if (departmentCode < 0 || departmentId != lastDepartmentId) {
+                    departmentCode = columns.departmentCode(departmentId);
+                    if (departmentCode < 0) {
+                        // the name is only read for the first row of each department
+                        departmentCode = columns.encodeDepartment(departmentId, rs.getString(6));
+                    }
+                    lastDepartmentId = departmentId;
+                }
+
+                columns.add(rs.getInt(1), columns.encodeName(rs.getString(2)),
+                        rs.getLong(3) * 1000L, rs.getDouble(4), departmentCode);
+            }
+
+            return columns;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public long count() {
+        String sql = "SELECT COUNT(*) From seller";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            rs = st.executeQuery();
+
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public SalaryStats salaryByDepartment() {
+        // aggregates on idx_seller_department_salary, then joins the few groups
+        String sql = "SELECT "
+                + "s.DepartmentId, department.Name, s.Total, s.SumSalary, s.MinSalary, s.MaxSalary "
+                + "From (SELECT DepartmentId, COUNT(*) as Total, SUM(BaseSalary) as SumSalary, "
+                + "MIN(BaseSalary) as MinSalary, MAX(BaseSalary) as MaxSalary "
+                + "From seller GROUP BY DepartmentId) s "
+                + "Inner Join department On s.DepartmentId = department.Id "
+                + "ORDER BY s.DepartmentId";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            rs = st.executeQuery();
+
+            List<Integer> ids = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<Long> counts = new ArrayList<>();
+            List<Double> sums = new ArrayList<>();
+            List<Double> mins = new ArrayList<>();
+            List<Double> maxs = new ArrayList<>();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                names.add(rs.getString(2));
+                counts.add(rs.getLong(3));
+                sums.add(rs.getDouble(4));
+                mins.add(rs.getDouble(5));
+                maxs.add(rs.getDouble(6));
+            }
+
+            // one row per department, so the boxing above is negligible
+            int size = ids.size();
+            int[] departmentIds = new int[size];
+            long[] countArray = new long[size];
+            double[] sumArray = new double[size];
+            double[] minArray = new double[size];
+            double[] maxArray = new double[size];
+            for (int i = 0; i < size; i++) {
+                departmentIds[i] = ids.get(i);
+                countArray[i] = counts.get(i);
+                sumArray[i] = sums.get(i);
+                minArray[i] = mins.get(i);
+                maxArray[i] = maxs.get(i);
+            }
+
+            return new SalaryStats(departmentIds, names.toArray(new String[size]),
+                    countArray, sumArray, minArray, maxArray);
+        } catch (SQLException e) {
+            throw DbException.from(e);
         } finally {
+            DB.closeResultSet(rs);
             DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public YearHistogram countByBirthYear() {
+        // BirthDate holds epoch seconds; scans idx_seller_birthdate only
+        String sql = "SELECT "
+                + "CAST(strftime('%Y', BirthDate, 'unixepoch') AS INTEGER) as BirthYear, COUNT(*) "
+                + "From seller GROUP BY BirthYear ORDER BY BirthYear";
+
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            rs = st.executeQuery();
+
+            List<Integer> years = new ArrayList<>();
+            List<Long> counts = new ArrayList<>();
+            while (rs.next()) {
+                years.add(rs.getInt(1));
+                counts.add(rs.getLong(2));
+            }
+
+            int[] yearArray = new int[years.size()];
+            long[] countArray = new long[years.size()];
+            for (int i = 0; i < yearArray.length; i++) {
+                yearArray[i] = years.get(i);
+                countArray[i] = counts.get(i);
+            }
+
+            return new YearHistogram(yearArray, countArray);
+        } catch (SQLException e) {
+            throw DbException.from(e);
+        } finally {
             DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public Stream<Seller> streamAll() {
+        String sql = "SELECT "
+                + "seller.*, "
+                + "department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id "
+                + "ORDER BY Name";
+
+        return stream(sql, null);
+    }
+
+    @Override
+    public Stream<Seller> streamByDepartment(Department department) {
+        String sql = "SELECT "
+                + "seller.*, "
+                + "department.Name as DepName "
+                + "From seller Inner Join department "
+                + "On seller.DepartmentId = department.Id "
+                + "Where DepartmentId = ?"
+                + "ORDER BY Name";
+
+        return stream(sql, department.getId());
+    }
+
+    private Stream<Seller> stream(String sql, Integer departmentId) {
+        Connection conn = null;
+        PreparedStatement st = null;
+        ResultSet rs = null;
+
+        try {
+            conn = readPool.borrow();
+            st = conn.prepareStatement(sql);
+            st.setFetchSize(fetchSize);
+
+            if (departmentId != null) {
+                st.setInt(1, departmentId);
+            }
+            rs = st.executeQuery();
+            SellerRowMapper mapper = mappers.get(sql, rs);
+
+            SellerSpliterator spliterator = new SellerSpliterator(conn, st, rs, mapper);
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(spliterator::close);
+        } catch (SQLException e) {
+            DB.closeResultSet(rs);
+            DB.closeStatement(st);
+            DB.closeConnection(conn);
+            throw DbException.from(e);
+        }
+    }
+
+    /**
+     * Maps the rows of an open ResultSet one at a time and releases the JDBC
+     * resources when the rows end or the stream is closed.
+     */
+    private class SellerSpliterator extends Spliterators.AbstractSpliterator<Seller> {
+
+        private final Connection conn;
+        private final PreparedStatement st;
+        private final ResultSet rs;
+        private final SellerRowMapper mapper;
+        private final Map<Integer, Department> map = new HashMap<>();
+        private boolean closed = false;
+
+        SellerSpliterator(Connection conn, PreparedStatement st, ResultSet rs, SellerRowMapper mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.st = st;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Seller> action) {
+            if (closed) {
+                return false;
+            }
+
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+
+                Department dep = map.get(mapper.getDepartmentId(rs));
+                if (dep == null) {
+                    dep = resolveDepartment(rs, mapper);
+                    map.put(dep.getId(), dep);
+                }
+
+                action.accept(mapper.mapRow(rs, dep));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw DbException.from(e);
+            }
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                DB.closeResultSet(rs);
+                DB.closeStatement(st);
+                DB.closeConnection(conn);
+            }
         }
     }
 
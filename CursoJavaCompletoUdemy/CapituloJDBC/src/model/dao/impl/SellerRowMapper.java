@@ -0,0 +1,59 @@
+package model.dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Date;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Maps the rows of the seller queries ({@code seller.*} joined with
+ * {@code department.Name as DepName}).
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerRowMapper implements RowMapper<Seller> {
+
+    private final int id;
+    private final int name;
+    private final int email;
+    private final int birthDate;
+    private final int baseSalary;
+    private final DepartmentRowMapper departmentMapper;
+
+    public SellerRowMapper(ResultSetMetaData md) throws SQLException {
+        int[] indexes = Columns.resolve(md, "Id", "Name", "Email", "BirthDate", "BaseSalary");
+        id = indexes[0];
+        name = indexes[1];
+        email = indexes[2];
+        birthDate = indexes[3];
+        baseSalary = indexes[4];
+        departmentMapper = new DepartmentRowMapper(md, "DepartmentId", "DepName");
+    }
+
+    public int getDepartmentId(ResultSet rs) throws SQLException {
+        return departmentMapper.getId(rs);
+    }
+
+    public Department mapDepartment(ResultSet rs) throws SQLException {
+        return departmentMapper.mapRow(rs);
+    }
+
+    @Override
+    public Seller mapRow(ResultSet rs) throws SQLException {
+        return mapRow(rs, mapDepartment(rs));
+    }
+
+    public Seller mapRow(ResultSet rs, Department dep) throws SQLException {
+        Seller obj = new Seller();
+        obj.setId(rs.getInt(id));
+        obj.setName(rs.getString(name));
+        obj.setEmail(rs.getString(email));
+        obj.setBaseSalary(rs.getDouble(baseSalary));
+        obj.setBirthDate(new Date(rs.getLong(birthDate) * 1000L));
+        obj.setDepartment(dep);
+        return obj;
+    }
+
+}
@@ -0,0 +1,108 @@
+package model.dao.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Progress and outcome of a {@link SellerCsvLoader} run. The listener of the
+ * loader receives a snapshot after every commit, and load() returns the
+ * final one.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class LoadResult {
+
+    private final long bytes;
+    private final long rowsParsed;
+    private final long rowsRejected;
+    private final long rowsWritten;
+    private final long transactions;
+    private final long elapsedNanos;
+    private final long parserBlockedNanos;
+    private final long writerIdleNanos;
+    private final List<String> errors;
+
+    LoadResult(long bytes, long rowsParsed, long rowsRejected, long rowsWritten, long transactions,
+            long elapsedNanos, long parserBlockedNanos, long writerIdleNanos, List<String> errors) {
+        this.bytes = bytes;
+        this.rowsParsed = rowsParsed;
+        this.rowsRejected = rowsRejected;
+        this.rowsWritten = rowsWritten;
+        this.transactions = transactions;
+        this.elapsedNanos = elapsedNanos;
+        this.parserBlockedNanos = parserBlockedNanos;
+        this.writerIdleNanos = writerIdleNanos;
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    /**
+     * @return size of the file
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return valid rows handed to the writer so far
+     */
+    public long getRowsParsed() {
+        return rowsParsed;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * @return rows inserted and committed
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getTransactions() {
+        return transactions;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1e6;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsWritten / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * @return time the parsers spent waiting for room in the queue, summed
+     * over all parser threads; high values mean the writer is the bottleneck
+     */
+    public double getParserBlockedMillis() {
+        return parserBlockedNanos / 1e6;
+    }
+
+    /**
+     * @return time the writer spent waiting for parsed rows; high values
+     * mean parsing is the bottleneck
+     */
+    public double getWriterIdleMillis() {
+        return writerIdleNanos / 1e6;
+    }
+
+    /**
+     * @return the first rejected rows, with the byte offset of their line,
+     * and the failure that stopped the load, if any
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoadResult{bytes=%d, parsed=%d, rejected=%d, written=%d, transactions=%d,"
+                + " elapsedMs=%.1f, rowsPerSecond=%.0f, parserBlockedMs=%.1f, writerIdleMs=%.1f}",
+                bytes, rowsParsed, rowsRejected, rowsWritten, transactions, getElapsedMillis(),
+                getRowsPerSecond(), getParserBlockedMillis(), getWriterIdleMillis());
+    }
+
+}
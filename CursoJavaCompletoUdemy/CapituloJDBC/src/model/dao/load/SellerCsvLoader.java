@@ -0,0 +1,658 @@
+package model.dao.load;
+
+import db.ConnectionPool;
+import db.DB;
+import db.DbException;
+import db.TransactionOptions;
+import db.Transactions;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import model.dao.DepartmentDao;
+import model.dao.cache.CachingSellerDao;
+import model.dao.cache.DepartmentCache;
+import model.entities.Department;
+
+/**
+ * Loads sellers from a CSV file into the seller table.
+ *
+ * The file is split in ranges at line boundaries and each range is
+ * memory-mapped and parsed by its own thread. Valid rows are grouped in
+ * chunks and handed to a single writer (the thread that called
+ * {@link #load(Path)}) through a bounded queue, so parsers wait when the
+ * writer falls behind. The writer inserts the rows with JDBC batches, in
+ * transactions of about rowsPerTransaction rows, which are retried by
+ * {@link Transactions} if the database is busy.
+ *
+ * Expected columns: Name, Email, BirthDate (yyyy-MM-dd or dd/MM/yyyy),
+ * BaseSalary, Department (name of an existing department). Fields may be
+ * quoted with {@code "}, but a record cannot span lines. Invalid rows are
+ * counted and skipped. A row whose Email is already in the table updates
+ * that seller, so a file can be loaded again. If the load fails, the
+ * transactions already committed are kept.
+ *
+ * The caches given to the loader are invalidated after every load, as the
+ * rows were written behind their back; pending write-behind updates are
+ * flushed before it starts, so they do not overwrite the loaded rows later.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerCsvLoader {
+
+    private static final int FIELDS = 5;
+    private static final long MAX_RANGE_BYTES = 1L << 30;
+    private static final Chunk END = new Chunk(0);
+
+    private final ConnectionPool pool;
+    private final DepartmentDao departmentDao;
+
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 1000;
+    private int queueCapacity = 64;
+    private int rowsPerTransaction = 50_000;
+    private int batchSize = 1000;
+    private boolean header = true;
+    private int maxErrors = 100;
+    private ZoneId zone = ZoneOffset.UTC;
+    private TransactionOptions transactionOptions = new TransactionOptions();
+    private Consumer<LoadResult> progressListener;
+    private CachingSellerDao sellerCache;
+    private DepartmentCache departmentCache;
+
+    /**
+     * @param pool pool of the writer, such as {@code DB.getPool()}
+     * @param departmentDao used once per load to map department names to ids
+     */
+    public SellerCsvLoader(ConnectionPool pool, DepartmentDao departmentDao) {
+        this.pool = pool;
+        this.departmentDao = departmentDao;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = Math.max(1, parserThreads);
+    }
+
+    /**
+     * @param chunkSize rows handed to the writer at a time
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @param queueCapacity chunks that may wait for the writer before the
+     * parsers block
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    public void setRowsPerTransaction(int rowsPerTransaction) {
+        this.rowsPerTransaction = Math.max(1, rowsPerTransaction);
+    }
+
+    /**
+     * @param batchSize rows sent in each JDBC batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param header whether the first line of the file is a header
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    /**
+     * @param maxErrors error messages kept in the result
+     */
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @param zone time zone of the birth dates, UTC by default as in
+     * banco.sql and countByBirthYear
+     */
+    public void setZone(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public void setTransactionOptions(TransactionOptions transactionOptions) {
+        this.transactionOptions = transactionOptions;
+    }
+
+    /**
+     * @param progressListener called by the writer after every commit
+     */
+    public void setProgressListener(Consumer<LoadResult> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @param sellerCache flushed before and invalidated after every load, or
+     * null
+     */
+    public void setSellerCache(CachingSellerDao sellerCache) {
+        this.sellerCache = sellerCache;
+    }
+
+    /**
+     * @param departmentCache invalidated after every load, or null
+     */
+    public void setDepartmentCache(DepartmentCache departmentCache) {
+        this.departmentCache = departmentCache;
+    }
+
+    public LoadResult load(Path file) {
+        if (sellerCache != null) {
+            sellerCache.flush();
+        }
+        try {
+            return loadFile(file);
+        } finally {
+            if (sellerCache != null) {
+                sellerCache.invalidateAll();
+            }
+            if (departmentCache != null) {
+                departmentCache.invalidateAll();
+            }
+        }
+    }
+
+    private LoadResult loadFile(Path file) {
+        Run run = new Run(departmentIds());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            run.bytes = channel.size();
+            List<long[]> ranges = split(channel, run.bytes);
+            if (ranges.isEmpty()) {
+                return run.snapshot();
+            }
+
+            ExecutorService parsers = Executors.newFixedThreadPool(Math.min(parserThreads, ranges.size()), r -> {
+                Thread t = new Thread(r, "SellerCsvLoader-parser");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                for (long[] range : ranges) {
+                    parsers.execute(() -> run.parse(channel, range[0], range[1]));
+                }
+                run.write(ranges.size());
+            } finally {
+                parsers.shutdownNow();
+            }
+        } catch (IOException ex) {
+            throw new DbException(ex.getMessage(), ex);
+        }
+
+        if (run.failure.get() != null) {
+            Throwable cause = run.failure.get();
+            throw new DbException("Load failed after " + run.rowsWritten.sum() + " rows! Caused by: "
+                    + cause.getMessage(), cause);
+        }
+        return run.snapshot();
+    }
+
+    private Map<String, Integer> departmentIds() {
+        Map<String, Integer> ids = new HashMap<>();
+        for (Department dep : departmentDao.findAll()) {
+            if (dep.getName() != null) {
+                ids.put(dep.getName().trim(), dep.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Splits the file in ranges that start at the beginning of a line, at
+     * least one per parser and none bigger than what a single mapping holds.
+     */
+    private List<long[]> split(FileChannel channel, long size) throws IOException {
+        int count = (int) Math.max(parserThreads, (size + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+        long step = Math.max(1, size / count);
+
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + step);
+            // move the end past the next line break
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int i = 0;
+                while (i < read && probe.get(i) != '\n') {
+                    i++;
+                }
+                end += i < read ? i + 1 : read;
+                if (i < read) {
+                    break;
+                }
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * Rows parsed but not written yet, in columns.
+     */
+    private static class Chunk {
+
+        private final String[] names;
+        private final String[] emails;
+        private final long[] birthDates;
+        private final double[] baseSalaries;
+        private final int[] departmentIds;
+        private int size;
+
+        Chunk(int capacity) {
+            names = new String[capacity];
+            emails = new String[capacity];
+            birthDates = new long[capacity];
+            baseSalaries = new double[capacity];
+            departmentIds = new int[capacity];
+        }
+
+        boolean isFull() {
+            return size == names.length;
+        }
+    }
+
+    /**
+     * State of one call to load().
+     */
+    private class Run {
+
+        private final Map<String, Integer> departments;
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final long startedAt = System.nanoTime();
+
+        private long bytes;
+        private final LongAdder rowsParsed = new LongAdder();
+        private final LongAdder rowsRejected = new LongAdder();
+        private final LongAdder rowsWritten = new LongAdder();
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder parserBlockedNanos = new LongAdder();
+        private final LongAdder writerIdleNanos = new LongAdder();
+        private final List<String> errors = new ArrayList<>();
+        private final AtomicInteger errorCount = new AtomicInteger();
+
+        Run(Map<String, Integer> departments) {
+            this.departments = departments;
+        }
+
+        LoadResult snapshot() {
+            List<String> copy;
+            synchronized (errors) {
+                copy = new ArrayList<>(errors);
+            }
+            return new LoadResult(bytes, rowsParsed.sum(), rowsRejected.sum(), rowsWritten.sum(),
+                    transactions.sum(), System.nanoTime() - startedAt, parserBlockedNanos.sum(),
+                    writerIdleNanos.sum(), copy);
+        }
+
+        void error(String message) {
+            if (errorCount.incrementAndGet() <= maxErrors) {
+                synchronized (errors) {
+                    errors.add(message);
+                }
+            }
+        }
+
+        void fail(Throwable ex) {
+            if (failure.compareAndSet(null, ex)) {
+                error(ex.toString());
+            }
+        }
+
+        // ---- parser side ----
+
+        void parse(FileChannel channel, long start, long end) {
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                LineParser parser = new LineParser();
+                Chunk chunk = new Chunk(chunkSize);
+                boolean skipHeader = header && start == 0;
+
+                int pos = 0;
+                int limit = buffer.limit();
+                while (pos < limit && failure.get() == null) {
+                    int lineStart = pos;
+                    int len = 0;
+                    while (pos < limit) {
+                        byte b = buffer.get(pos++);
+                        if (b == '\n') {
+                            break;
+                        }
+                        parser.append(len++, b);
+                    }
+                    if (len > 0 && parser.line[len - 1] == '\r') {
+                        len--;
+                    }
+                    if (skipHeader) {
+                        skipHeader = false;
+                        continue;
+                    }
+                    if (len == 0) {
+                        continue;
+                    }
+
+                    String error = parser.parse(len, chunk);
+                    if (error != null) {
+                        rowsRejected.increment();
+                        error("Offset " + (start + lineStart) + ": " + error);
+                    } else if (chunk.isFull()) {
+                        put(chunk);
+                        chunk = new Chunk(chunkSize);
+                    }
+                }
+
+                if (chunk.size > 0) {
+                    put(chunk);
+                }
+            } catch (IOException | RuntimeException ex) {
+                fail(ex);
+            } finally {
+                put(END);
+            }
+        }
+
+        private void put(Chunk chunk) {
+            if (queue.offer(chunk)) {
+                rowsParsed.add(chunk.size);
+                return;
+            }
+
+            long waitStart = System.nanoTime();
+            try {
+                while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                }
+                rowsParsed.add(chunk.size);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            } finally {
+                parserBlockedNanos.add(System.nanoTime() - waitStart);
+            }
+        }
+
+        /**
+         * Reads a line into fields and appends it to the chunk.
+         */
+        private class LineParser {
+
+            private byte[] line = new byte[256];
+            private byte[] fields = new byte[256];
+            private final int[] starts = new int[FIELDS];
+            private final int[] ends = new int[FIELDS];
+
+            void append(int index, byte b) {
+                if (index == line.length) {
+                    line = Arrays.copyOf(line, line.length * 2);
+                    fields = new byte[line.length];
+                }
+                line[index] = b;
+            }
+
+            String parse(int len, Chunk chunk) {
+                int count = split(len);
+                if (count != FIELDS) {
+                    return "expected " + FIELDS + " fields, found " + count;
+                }
+
+                String name = text(0);
+                String email = text(1);
+                if (name.isEmpty() || email.isEmpty()) {
+                    return "Name and Email are required";
+                }
+
+                long birthDate;
+                try {
+                    birthDate = date(2);
+                } catch (DateTimeException | NumberFormatException ex) {
+                    return "invalid BirthDate '" + text(2) + "'";
+                }
+
+                double baseSalary;
+                try {
+                    baseSalary = Double.parseDouble(text(3));
+                } catch (NumberFormatException ex) {
+                    return "invalid BaseSalary '" + text(3) + "'";
+                }
+
+                Integer departmentId = departments.get(text(4));
+                if (departmentId == null) {
+                    return "unknown department '" + text(4) + "'";
+                }
+
+                int i = chunk.size++;
+                chunk.names[i] = name;
+                chunk.emails[i] = email;
+                chunk.birthDates[i] = birthDate;
+                chunk.baseSalaries[i] = baseSalary;
+                chunk.departmentIds[i] = departmentId;
+                return null;
+            }
+
+            /**
+             * Copies the unquoted fields of the line one after the other into
+             * {@code fields}, recording where each one starts and ends.
+             *
+             * @return number of fields in the line
+             */
+            private int split(int len) {
+                int count = 0;
+                int out = 0;
+                int i = 0;
+                while (true) {
+                    int fieldStart = out;
+                    if (i < len && line[i] == '"') {
+                        i++;
+                        while (i < len) {
+                            if (line[i] == '"') {
+                                if (i + 1 < len && line[i + 1] == '"') {
+                                    fields[out++] = '"';
+                                    i += 2;
+                                    continue;
+                                }
+                                i++;
+                                break;
+                            }
+                            fields[out++] = line[i++];
+                        }
+                    }
+                    while (i < len && line[i] != ',') {
+                        fields[out++] = line[i++];
+                    }
+
+                    if (count < FIELDS) {
+                        starts[count] = fieldStart;
+                        ends[count] = out;
+                    }
+                    count++;
+
+                    if (i >= len) {
+                        return count;
+                    }
+                    i++; // the comma
+                }
+            }
+
+            private String text(int field) {
+                int s = starts[field];
+                int e = ends[field];
+                while (s < e && fields[s] == ' ') {
+                    s++;
+                }
+                while (e > s && fields[e - 1] == ' ') {
+                    e--;
+                }
+                return new String(fields, s, e - s, StandardCharsets.UTF_8);
+            }
+
+            /**
+             * @return epoch seconds of the date, yyyy-MM-dd or dd/MM/yyyy
+             */
+            private long date(int field) {
+                int s = starts[field];
+                if (ends[field] - s != 10) {
+                    throw new NumberFormatException();
+                }
+
+                int year;
+                int month;
+                int day;
+                if (fields[s + 4] == '-' && fields[s + 7] == '-') {
+                    year = digits(s, 4);
+                    month = digits(s + 5, 2);
+                    day = digits(s + 8, 2);
+                } else if (fields[s + 2] == '/' && fields[s + 5] == '/') {
+                    day = digits(s, 2);
+                    month = digits(s + 3, 2);
+                    year = digits(s + 6, 4);
+                } else {
+                    throw new NumberFormatException();
+                }
+                return LocalDate.of(year, month, day).atStartOfDay(zone).toEpochSecond();
+            }
+
+            private int digits(int from, int count) {
+                int value = 0;
+                for (int i = from; i < from + count; i++) {
+                    int digit = fields[i] - '0';
+                    if (digit < 0 || digit > 9) {
+                        throw new NumberFormatException();
+                    }
+                    value = value * 10 + digit;
+                }
+                return value;
+            }
+        }
+
+        // ---- writer side ----
+
+        void write(int parsers) {
+            List<Chunk> pending = new ArrayList<>();
+            int pendingRows = 0;
+            int finished = 0;
+
+            try {
+                while (finished < parsers && failure.get() == null) {
+                    long waitStart = System.nanoTime();
+                    Chunk chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                    writerIdleNanos.add(System.nanoTime() - waitStart);
+
+                    if (chunk == null) {
+                        continue;
+                    }
+                    if (chunk == END) {
+                        finished++;
+                        continue;
+                    }
+
+                    pending.add(chunk);
+                    pendingRows += chunk.size;
+                    if (pendingRows >= rowsPerTransaction) {
+                        commit(pending, pendingRows);
+                        pending.clear();
+                        pendingRows = 0;
+                    }
+                }
+
+                if (failure.get() == null && !pending.isEmpty()) {
+                    commit(pending, pendingRows);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            } catch (RuntimeException ex) {
+                fail(ex);
+            }
+        }
+
+        private void commit(List<Chunk> chunks, int rows) {
+            String sql = "INSERT INTO seller"
+                    + " (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES"
+                    + " (?,?,?,?,?)"
+                    + " ON CONFLICT (Email) DO UPDATE SET"
+                    + " Name=excluded.Name, BirthDate=excluded.BirthDate,"
+                    + " BaseSalary=excluded.BaseSalary, DepartmentId=excluded.DepartmentId";
+
+            // the chunks are kept until the commit, so a retry inserts them again
+            Transactions.run(pool, transactionOptions.copy().setName("seller.load"), conn -> {
+                PreparedStatement st = null;
+                try {
+                    st = conn.prepareStatement(sql);
+
+                    int batched = 0;
+                    for (Chunk chunk : chunks) {
+                        for (int i = 0; i < chunk.size; i++) {
+                            st.setString(1, chunk.names[i]);
+                            st.setString(2, chunk.emails[i]);
+                            st.setLong(3, chunk.birthDates[i]);
+                            st.setDouble(4, chunk.baseSalaries[i]);
+                            st.setInt(5, chunk.departmentIds[i]);
+                            st.addBatch();
+
+                            if (++batched == batchSize) {
+                                st.executeBatch();
+                                batched = 0;
+                            }
+                        }
+                    }
+                    if (batched > 0) {
+                        st.executeBatch();
+                    }
+
+                    return null;
+                } finally {
+                    DB.closeStatement(st);
+                }
+            });
+
+            rowsWritten.add(rows);
+            transactions.increment();
+            if (progressListener != null) {
+                progressListener.accept(snapshot());
+            }
+        }
+    }
+
+}
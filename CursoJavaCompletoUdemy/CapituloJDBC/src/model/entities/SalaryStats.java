@@ -0,0 +1,116 @@
+package model.entities;
+
+import java.io.Serializable;
+
+/**
+ * Count, sum, average, minimum and maximum of BaseSalary per department, kept
+ * in parallel arrays: index {@code i} describes the department
+ * {@code getDepartmentId(i)}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SalaryStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] departmentIds;
+    private final String[] departmentNames;
+    private final long[] counts;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    /**
+     * The arrays are used as they are, not copied.
+     */
+    public SalaryStats(int[] departmentIds, String[] departmentNames, long[] counts,
+            double[] sums, double[] mins, double[] maxs) {
+        this.departmentIds = departmentIds;
+        this.departmentNames = departmentNames;
+        this.counts = counts;
+        this.sums = sums;
+        this.mins = mins;
+        this.maxs = maxs;
+    }
+
+    /**
+     * @return number of departments
+     */
+    public int size() {
+        return departmentIds.length;
+    }
+
+    /**
+     * @return the index of the department, or -1 when it has no sellers
+     */
+    public int indexOf(int departmentId) {
+        for (int i = 0; i < departmentIds.length; i++) {
+            if (departmentIds[i] == departmentId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getDepartmentId(int i) {
+        return departmentIds[i];
+    }
+
+    public String getDepartmentName(int i) {
+        return departmentNames[i];
+    }
+
+    public long getCount(int i) {
+        return counts[i];
+    }
+
+    public double getSum(int i) {
+        return sums[i];
+    }
+
+    public double getAverage(int i) {
+        return counts[i] == 0 ? 0.0 : sums[i] / counts[i];
+    }
+
+    public double getMin(int i) {
+        return mins[i];
+    }
+
+    public double getMax(int i) {
+        return maxs[i];
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public double getTotalSum() {
+        double total = 0;
+        for (double sum : sums) {
+            total += sum;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SalaryStats{");
+        for (int i = 0; i < departmentIds.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(departmentNames[i]).append('(').append(departmentIds[i]).append(")=")
+                    .append("count:").append(counts[i])
+                    .append(" sum:").append(sums[i])
+                    .append(" avg:").append(getAverage(i))
+                    .append(" min:").append(mins[i])
+                    .append(" max:").append(maxs[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+}
@@ -0,0 +1,227 @@
+package model.entities;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Many sellers stored column by column in primitive arrays, for bulk reads
+ * and aggregations that would otherwise build a {@link Seller}, a Date, an
+ * Integer and a Double per row.
+ *
+ * Seller names and departments are dictionary encoded: each row keeps an
+ * int code, and every distinct name or department is stored once. Emails
+ * are not kept. Rows are appended with {@link #add}; the arrays grow as
+ * needed.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerColumns implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int size;
+    private int[] ids;
+    private int[] nameCodes;
+    private long[] birthDates;
+    private double[] baseSalaries;
+    private int[] departmentCodes;
+
+    private String[] names = new String[16];
+    private int nameCount;
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+
+    private int[] departmentIds = new int[8];
+    private String[] departmentNames = new String[8];
+    private int departmentCount;
+
+    public SellerColumns() {
+        this(1024);
+    }
+
+    public SellerColumns(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new int[capacity];
+        nameCodes = new int[capacity];
+        birthDates = new long[capacity];
+        baseSalaries = new double[capacity];
+        departmentCodes = new int[capacity];
+    }
+
+    /**
+     * @param birthDate epoch milliseconds
+     * @param departmentName stored only the first time the department is seen
+     * @return the index of the new row
+     */
+    public int add(int id, String name, long birthDate, double baseSalary, int departmentId, String departmentName) {
+        return add(id, encodeName(name), birthDate, baseSalary, encodeDepartment(departmentId, departmentName));
+    }
+
+    /**
+     * Appends a row whose name and department were already encoded with
+     * {@link #encodeName(String)} and {@link #encodeDepartment(int, String)}.
+     */
+    public int add(int id, int nameCode, long birthDate, double baseSalary, int departmentCode) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        nameCodes[size] = nameCode;
+        birthDates[size] = birthDate;
+        baseSalaries[size] = baseSalary;
+        departmentCodes[size] = departmentCode;
+        return size++;
+    }
+
+    /**
+     * @return the code of the name, adding it to the dictionary if needed
+     */
+    public int encodeName(String name) {
+        Integer code = nameIndex.get(name);
+        if (code != null) {
+            return code;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameIndex.put(name, nameCount);
+        return nameCount++;
+    }
+
+    /**
+     * @return the code of the department, adding it to the dictionary if
+     * needed
+     */
+    public int encodeDepartment(int departmentId, String departmentName) {
+        int code = departmentCode(departmentId);
+        if (code >= 0) {
+            return code;
+        }
+        if (departmentCount == departmentIds.length) {
+            departmentIds = Arrays.copyOf(departmentIds, departmentCount * 2);
+            departmentNames = Arrays.copyOf(departmentNames, departmentCount * 2);
+        }
+        departmentIds[departmentCount] = departmentId;
+        departmentNames[departmentCount] = departmentName;
+        return departmentCount++;
+    }
+
+    /**
+     * @return the code of the department, or -1 when no row belongs to it
+     */
+    public int departmentCode(int departmentId) {
+        for (int i = 0; i < departmentCount; i++) {
+            if (departmentIds[i] == departmentId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        birthDates = Arrays.copyOf(birthDates, capacity);
+        baseSalaries = Arrays.copyOf(baseSalaries, capacity);
+        departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getName(int row) {
+        return names[nameCodes[row]];
+    }
+
+    /**
+     * @return epoch milliseconds
+     */
+    public long getBirthDate(int row) {
+        return birthDates[row];
+    }
+
+    public double getBaseSalary(int row) {
+        return baseSalaries[row];
+    }
+
+    public int getDepartmentId(int row) {
+        return departmentIds[departmentCodes[row]];
+    }
+
+    public String getDepartmentName(int row) {
+        return departmentNames[departmentCodes[row]];
+    }
+
+    public int getDistinctNameCount() {
+        return nameCount;
+    }
+
+    public int getDepartmentCount() {
+        return departmentCount;
+    }
+
+    /**
+     * Builds the entity of one row, without the email.
+     */
+    public Seller toSeller(int row) {
+        Department dep = new Department(getDepartmentId(row), getDepartmentName(row));
+        return new Seller(ids[row], getName(row), null, new Date(birthDates[row]), baseSalaries[row], dep);
+    }
+
+    public double sumBaseSalary() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += baseSalaries[i];
+        }
+        return sum;
+    }
+
+    public double averageBaseSalary() {
+        return size == 0 ? 0.0 : sumBaseSalary() / size;
+    }
+
+    /**
+     * Count, sum, average, minimum and maximum BaseSalary per department, in
+     * one pass over the salary and department columns.
+     */
+    public SalaryStats salaryByDepartment() {
+        long[] counts = new long[departmentCount];
+        double[] sums = new double[departmentCount];
+        double[] mins = new double[departmentCount];
+        double[] maxs = new double[departmentCount];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+
+        for (int i = 0; i < size; i++) {
+            int d = departmentCodes[i];
+            double salary = baseSalaries[i];
+            counts[d]++;
+            sums[d] += salary;
+            if (salary < mins[d]) {
+                mins[d] = salary;
+            }
+            if (salary > maxs[d]) {
+                maxs[d] = salary;
+            }
+        }
+
+        return new SalaryStats(Arrays.copyOf(departmentIds, departmentCount),
+                Arrays.copyOf(departmentNames, departmentCount), counts, sums, mins, maxs);
+    }
+
+    @Override
+    public String toString() {
+        return "SellerColumns{" + "size=" + size + ", distinctNames=" + nameCount
+                + ", departments=" + departmentCount + '}';
+    }
+
+}
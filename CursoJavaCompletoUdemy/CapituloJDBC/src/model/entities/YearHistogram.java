@@ -0,0 +1,61 @@
+package model.entities;
+
+import java.io.Serializable;
+
+/**
+ * Number of sellers per year, in parallel arrays ordered by year.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class YearHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] years;
+    private final long[] counts;
+
+    /**
+     * The arrays are used as they are, not copied.
+     */
+    public YearHistogram(int[] years, long[] counts) {
+        this.years = years;
+        this.counts = counts;
+    }
+
+    public int size() {
+        return years.length;
+    }
+
+    public int getYear(int i) {
+        return years[i];
+    }
+
+    public long getCount(int i) {
+        return counts[i];
+    }
+
+    /**
+     * @return the count of the year, 0 when it is not in the histogram
+     */
+    public long getCountOfYear(int year) {
+        for (int i = 0; i < years.length; i++) {
+            if (years[i] == year) {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("YearHistogram{");
+        for (int i = 0; i < years.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(years[i]).append('=').append(counts[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+}
@@ -0,0 +1,90 @@
+package db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import model.dao.SellerDao;
+import model.dao.impl.SellerDaoJDBC;
+import model.entities.Seller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * The database shipped in banco/banco.db has the schema the DAOs expect.
+ *
+ * The tests run on a copy of the file read from the {@code banco.db} system
+ * property, by default {@code ../banco/banco.db}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class ShippedDatabaseTest {
+
+    private File file;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("banco-", ".db");
+        file.deleteOnExit();
+        Files.copy(Paths.get(System.getProperty("banco.db", "../banco/banco.db")), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        Properties props = new Properties();
+        props.setProperty("dburl", "jdbc:sqlite:" + file.getAbsolutePath());
+        pool = new ConnectionPool(props);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void upsertUpdatesTheSellerWithTheSameEmail() {
+        SellerDao dao = new SellerDaoJDBC(pool, 500);
+        Seller obj = dao.findById(1);
+        long count = dao.count();
+        obj.setId(null);
+        obj.setName("Bob Upserted");
+
+        assertFalse(dao.upsert(obj));
+
+        assertEquals(count, dao.count());
+        assertEquals("Bob Upserted", dao.findById(1).getName());
+    }
+
+    @Test
+    public void sellerWritesAreLogged() throws SQLException {
+        SellerDao dao = new SellerDaoJDBC(pool, 500);
+        Seller obj = dao.findById(2);
+        obj.setBaseSalary(5000.0);
+        dao.update(obj);
+        dao.deleteById(3);
+
+        try (Connection conn = pool.borrow();
+                PreparedStatement st = conn.prepareStatement("SELECT Op, RowId FROM change_log"
+                        + " WHERE TableName='seller' ORDER BY Seq");
+                ResultSet rs = st.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals("U", rs.getString("Op"));
+            assertEquals(2, rs.getInt("RowId"));
+            assertTrue(rs.next());
+            assertEquals("D", rs.getString("Op"));
+            assertEquals(3, rs.getInt("RowId"));
+            assertFalse(rs.next());
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import model.dao.SellerDao;
+import model.dao.impl.SellerDaoJDBC;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class StatementCacheTest {
+
+    private static final String DELETE = "DELETE FROM seller WHERE Id=?";
+
+    private TestDatabase db;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("pool.maxSize", "1");
+        props.setProperty("pool.statementCacheSize", "2");
+        db = new TestDatabase(props);
+        pool = db.getPool();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void closedStatementIsReused() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 1").close();
+        }
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+        }
+
+        StatementCacheStats stats = pool.getStatementCacheStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getCachedStatements());
+    }
+
+    @Test
+    public void statementInUseIsNotShared() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement first = conn.prepareStatement("SELECT ?");
+            PreparedStatement second = conn.prepareStatement("SELECT ?");
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            assertEquals(1, single(first));
+            assertEquals(2, single(second));
+            first.close();
+            second.close();
+        }
+        assertEquals(2, pool.getStatementCacheStats().getMisses());
+    }
+
+    @Test
+    public void closeDiscardsPendingBatch() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement st = conn.prepareStatement(DELETE);
+            st.setInt(1, 1);
+            st.addBatch();
+            st.setInt(1, 2);
+            st.addBatch();
+            st.close();
+
+            st = conn.prepareStatement(DELETE);
+            st.setInt(1, 5);
+            st.addBatch();
+            st.executeBatch();
+            st.close();
+        }
+
+        assertEquals(1, pool.getStatementCacheStats().getHits());
+        assertEquals(2, count("SELECT count(*) FROM seller WHERE Id IN (1, 2)"));
+        assertEquals(0, count("SELECT count(*) FROM seller WHERE Id=5"));
+    }
+
+    @Test
+    public void closedHandleCanNotUseReusedStatement() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement stale = conn.prepareStatement("SELECT ?");
+            stale.close();
+            PreparedStatement current = conn.prepareStatement("SELECT ?");
+            current.setInt(1, 7);
+
+            assertTrue(stale.isClosed());
+            try {
+                stale.setInt(1, 8);
+                fail("a closed handle must not reach the statement");
+            } catch (SQLException expected) {
+            }
+            stale.close();
+
+            assertFalse(current.isClosed());
+            assertEquals(7, single(current));
+            current.close();
+        }
+    }
+
+    @Test
+    public void statementLeftOpenIsReleasedWithTheConnection() throws SQLException {
+        PreparedStatement leaked;
+        try (Connection conn = pool.borrow()) {
+            leaked = conn.prepareStatement(DELETE);
+            leaked.setInt(1, 3);
+            leaked.addBatch();
+        }
+        assertTrue(leaked.isClosed());
+
+        try (Connection conn = pool.borrow(); PreparedStatement st = conn.prepareStatement(DELETE)) {
+            st.setInt(1, 4);
+            st.addBatch();
+            st.executeBatch();
+        }
+
+        assertEquals(1, pool.getStatementCacheStats().getHits());
+        assertEquals(1, count("SELECT count(*) FROM seller WHERE Id=3"));
+    }
+
+    @Test
+    public void statementClosedWithItsResultSetStillOpen() throws Exception {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement st = conn.prepareStatement("SELECT Id FROM seller");
+            ResultSet rs = st.executeQuery();
+            assertTrue(rs.next());
+            st.close();
+            assertTrue(rs.isClosed());
+        }
+
+        // an open read would keep the database locked
+        db.execute("INSERT INTO department (Name) VALUES ('Other')");
+    }
+
+    @Test
+    public void resultSetLeftOpenIsClosedWithTheConnection() throws SQLException {
+        ResultSet rs;
+        try (Connection conn = pool.borrow()) {
+            rs = conn.prepareStatement("SELECT Id FROM seller").executeQuery();
+            assertTrue(rs.next());
+        }
+        assertTrue(rs.isClosed());
+    }
+
+    @Test
+    public void failedBatchDoesNotLeakIntoTheNextDelete() {
+        SellerDao dao = new SellerDaoJDBC(pool, 1000);
+        try {
+            dao.deleteByIds(Arrays.asList(1, 2, null));
+            fail("a null id must fail");
+        } catch (RuntimeException expected) {
+        }
+
+        dao.deleteByIds(Collections.singletonList(5));
+
+        assertNotNull(dao.findById(1));
+        assertNotNull(dao.findById(2));
+        assertNull(dao.findById(5));
+    }
+
+    private int single(PreparedStatement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection conn = pool.borrow(); PreparedStatement st = conn.prepareStatement(sql)) {
+            return single(st);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Temporary SQLite database created from banco/banco.sql for the tests.
+ *
+ * The script is read from the {@code banco.sql} system property, by default
+ * {@code ../banco/banco.sql} relative to the project running the tests.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class TestDatabase implements AutoCloseable {
+
+    private final File file;
+    private final String url;
+    private final ConnectionPool pool;
+
+    public TestDatabase() throws IOException, SQLException {
+        this(new Properties());
+    }
+
+    /**
+     * @param settings pool.* keys added to the pool properties
+     */
+    public TestDatabase(Properties settings) throws IOException, SQLException {
+        file = File.createTempFile("test-", ".db");
+        file.deleteOnExit();
+        url = "jdbc:sqlite:" + file.getAbsolutePath();
+        runScript();
+
+        Properties props = new Properties();
+        props.putAll(settings);
+        props.setProperty("dburl", url);
+        pool = new ConnectionPool(props);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Runs a statement on a connection of its own.
+     */
+    public void execute(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    /**
+     * Runs the statements ended by ';', ignoring failed DROPs. CREATE TRIGGER
+     * bodies are kept whole until their END;.
+     */
+    private void runScript() throws IOException, SQLException {
+        List<String> lines = Files.readAllLines(Paths.get(System.getProperty("banco.sql", "../banco/banco.sql")),
+                StandardCharsets.UTF_8);
+
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            StringBuilder sql = new StringBuilder();
+            boolean trigger = false;
+
+            for (String line : lines) {
+                String trimmed = line.trim().toUpperCase();
+                if (trimmed.startsWith("--") && sql.length() == 0) {
+                    continue;
+                }
+                sql.append(line).append('\n');
+                if (trimmed.startsWith("CREATE TRIGGER")) {
+                    trigger = true;
+                }
+                if (trimmed.endsWith(";") && (!trigger || trimmed.equals("END;"))) {
+                    try {
+                        st.execute(sql.toString());
+                    } catch (SQLException ex) {
+                        if (!trimmed.startsWith("DROP")) {
+                            throw ex;
+                        }
+                    }
+                    sql.setLength(0);
+                    trigger = false;
+                }
+            }
+        }
+    }
+
+}
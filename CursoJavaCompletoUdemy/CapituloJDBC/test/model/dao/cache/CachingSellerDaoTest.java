@@ -0,0 +1,145 @@
+package model.dao.cache;
+
+import db.DbException;
+import db.TestDatabase;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import model.dao.SellerDao;
+import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.SellerDaoJDBC;
+import model.entities.Department;
+import model.entities.Seller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Write-behind failures and copies of {@link CachingSellerDao}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class CachingSellerDaoTest {
+
+    private TestDatabase db;
+    private SellerDao jdbc;
+    private final AtomicBoolean locked = new AtomicBoolean();
+    private CachingSellerDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new TestDatabase();
+        jdbc = new SellerDaoJDBC(db.getPool(), 1000);
+
+        // fails updateAll as a locked database would while locked is set
+        SellerDao lockable = (SellerDao) Proxy.newProxyInstance(SellerDao.class.getClassLoader(),
+                new Class<?>[]{SellerDao.class}, (proxy, method, args) -> {
+                    if (locked.get() && method.getName().startsWith("update")) {
+                        throw new DbException("[SQLITE_BUSY] database is locked");
+                    }
+                    try {
+                        return method.invoke(jdbc, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+
+        // the interval is long enough for the tests to flush by themselves
+        dao = new CachingSellerDao(lockable, 100, EvictionPolicy.LRU, 3_600_000, 100);
+    }
+
+    @After
+    public void tearDown() {
+        dao.close();
+        db.close();
+    }
+
+    @Test
+    public void deletedSellerIsDroppedAndTheOthersAreWritten() throws Exception {
+        Seller first = jdbc.findById(1);
+        first.setName("First");
+        dao.update(first);
+        Seller deleted = jdbc.findById(2);
+        deleted.setName("Deleted");
+        dao.update(deleted);
+        db.execute("DELETE FROM seller WHERE Id=2");
+
+        assertEquals(5, dao.findAll().size());
+
+        assertEquals("First", jdbc.findById(1).getName());
+        assertEquals(0, dao.getPendingCount());
+        assertEquals(1, dao.getDroppedWrites());
+        List<Seller> dead = dao.getDeadLetters();
+        assertEquals(1, dead.size());
+        assertEquals(Integer.valueOf(2), dead.get(0).getId());
+        assertNull(dao.findById(2));
+    }
+
+    @Test
+    public void duplicatedEmailIsDroppedWithoutFailingReads() {
+        Seller obj = jdbc.findById(3);
+        String email = obj.getEmail();
+        obj.setEmail(jdbc.findById(4).getEmail());
+        dao.update(obj);
+
+        dao.flush();
+        dao.flush();
+
+        assertEquals(6, dao.count());
+        assertEquals(1, dao.getDroppedWrites());
+        assertEquals(email, dao.findById(3).getEmail());
+    }
+
+    @Test
+    public void lockedDatabaseKeepsTheBatch() {
+        Seller obj = jdbc.findById(1);
+        obj.setName("Later");
+        dao.update(obj);
+
+        locked.set(true);
+        dao.flush();
+        assertEquals(1, dao.getPendingCount());
+        assertEquals(0, dao.getDroppedWrites());
+        assertEquals("Later", dao.findById(1).getName());
+
+        locked.set(false);
+        dao.flush();
+        assertEquals(0, dao.getPendingCount());
+        assertEquals("Later", jdbc.findById(1).getName());
+    }
+
+    @Test
+    public void sellerWithoutIdIsRejectedBeforeQueueing() {
+        Seller obj = jdbc.findById(1);
+        obj.setId(null);
+        try {
+            dao.update(obj);
+            fail("a seller without id must be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, dao.getPendingCount());
+        assertEquals(0, dao.size());
+    }
+
+    @Test
+    public void changingTheReturnedDepartmentDoesNotChangeTheCache() {
+        dao.findById(1).getDepartment().setName("Mutated");
+
+        assertEquals(jdbc.findById(1).getDepartment().getName(), dao.findById(1).getDepartment().getName());
+    }
+
+    @Test
+    public void departmentUpdateDropsTheCachedSellers() {
+        DepartmentDaoJDBC departments = new DepartmentDaoJDBC(db.getPool());
+        departments.setOnChange(id -> dao.invalidateAll());
+        Seller obj = dao.findById(1);
+        Integer departmentId = obj.getDepartment().getId();
+
+        departments.update(new Department(departmentId, "Renamed"));
+
+        assertEquals("Renamed", dao.findById(1).getDepartment().getName());
+    }
+
+}
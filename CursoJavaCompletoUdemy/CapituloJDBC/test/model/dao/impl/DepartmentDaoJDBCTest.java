@@ -0,0 +1,75 @@
+package model.dao.impl;
+
+import db.TestDatabase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class DepartmentDaoJDBCTest {
+
+    private TestDatabase db;
+    private DepartmentDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new TestDatabase();
+        dao = new DepartmentDaoJDBC(db.getPool(), 1000);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void findPageWalksDepartmentsWithoutName() {
+        dao.insertAll(Arrays.asList(new Department(null, null), new Department(null, "Games"),
+                new Department(null, null), new Department(null, null)));
+
+        List<Integer> walked = new ArrayList<>();
+        List<Department> page = dao.findPage(null, null, 2);
+        while (!page.isEmpty()) {
+            assertTrue("findPage did not end", walked.size() < 100);
+            for (Department dep : page) {
+                walked.add(dep.getId());
+            }
+            Department last = page.get(page.size() - 1);
+            page = dao.findPage(last.getName(), last.getId(), 2);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (Department dep : dao.findAll()) {
+            if (dep.getName() == null) {
+                expected.add(dep.getId());
+            }
+        }
+        expected.sort(null);
+        assertEquals(3, expected.size());
+        assertEquals(dao.findAll().size(), walked.size());
+        assertEquals(expected, walked.subList(0, 3));
+        assertEquals(walked.size(), walked.stream().distinct().count());
+    }
+
+    @Test
+    public void findPageAfterLastNameIsEmpty() {
+        List<Department> all = dao.findPage(null, null, 100);
+        Department last = all.get(all.size() - 1);
+
+        assertTrue(dao.findPage(last.getName(), last.getId(), 100).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findPageRejectsNameWithoutId() {
+        dao.findPage("Books", null, 10);
+    }
+
+}
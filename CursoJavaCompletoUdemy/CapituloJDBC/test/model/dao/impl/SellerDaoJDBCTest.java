@@ -0,0 +1,128 @@
+package model.dao.impl;
+
+import db.DbException;
+import db.TestDatabase;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import model.dao.SellerDao;
+import model.dao.UpsertResult;
+import model.entities.Department;
+import model.entities.Seller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Upserts of {@link SellerDaoJDBC}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerDaoJDBCTest {
+
+    private TestDatabase db;
+    private SellerDao dao;
+    private final Department books = new Department(4, "Books");
+
+    @Before
+    public void setUp() throws Exception {
+        db = new TestDatabase();
+        // a batch size of 2 makes the upserts below span several batches
+        dao = new SellerDaoJDBC(db.getPool(), 2);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void upsertInsertsNewEmail() {
+        Seller obj = seller("Ana", "ana@gmail.com", 2500);
+
+        assertTrue(dao.upsert(obj));
+
+        assertNotNull(obj.getId());
+        assertEquals(7, dao.count());
+        assertEquals("Ana", dao.findById(obj.getId()).getName());
+    }
+
+    @Test
+    public void upsertUpdatesExistingEmail() {
+        Seller obj = seller("Robert Brown", "bob@gmail.com", 1500);
+
+        assertFalse(dao.upsert(obj));
+
+        assertEquals(Integer.valueOf(1), obj.getId());
+        assertEquals(6, dao.count());
+        Seller bob = dao.findById(1);
+        assertEquals("Robert Brown", bob.getName());
+        assertEquals(1500.0, bob.getBaseSalary(), 0.0);
+        assertEquals("Books", bob.getDepartment().getName());
+    }
+
+    @Test
+    public void upsertAllSplitsInsertedAndUpdated() {
+        Seller ana = seller("Ana", "ana@gmail.com", 2500);
+        Seller bob = seller("Robert Brown", "bob@gmail.com", 1500);
+        Seller carl = seller("Carl", "carl@gmail.com", 2000);
+        Seller maria = seller("Maria Green", "maria@gmail.com", 3600);
+        Seller anaAgain = seller("Ana Silva", "ana@gmail.com", 2600);
+
+        UpsertResult result = dao.upsertAll(Arrays.asList(ana, bob, carl, maria, anaAgain));
+
+        assertEquals(Arrays.asList(ana.getId(), carl.getId()), result.getInserted());
+        assertEquals(Arrays.asList(1, 2, ana.getId()), result.getUpdated());
+        assertEquals(ana.getId(), anaAgain.getId());
+        assertEquals(8, dao.count());
+        assertEquals("Ana Silva", dao.findById(ana.getId()).getName());
+        assertEquals(3600.0, dao.findById(2).getBaseSalary(), 0.0);
+    }
+
+    @Test
+    public void upsertAllIsOneTransaction() {
+        Seller ana = seller("Ana", "ana@gmail.com", 2500);
+        Seller bob = seller("Robert Brown", "bob@gmail.com", 1500);
+        Seller broken = seller(null, "broken@gmail.com", 1000);
+
+        try {
+            dao.upsertAll(Arrays.asList(ana, bob, broken));
+            fail("a seller without name must fail");
+        } catch (DbException expected) {
+        }
+
+        assertEquals(6, dao.count());
+        assertEquals("Bob Brown", dao.findById(1).getName());
+    }
+
+    @Test
+    public void upsertAllOfNothing() {
+        UpsertResult result = dao.upsertAll(Collections.<Seller>emptyList());
+
+        assertEquals(0, result.getInsertedCount());
+        assertEquals(0, result.getUpdatedCount());
+    }
+
+    @Test
+    public void departmentUpsertByIdOrInsert() {
+        DepartmentDaoJDBC departments = new DepartmentDaoJDBC(db.getPool(), 2);
+        Department renamed = new Department(4, "Comics");
+        Department withId = new Department(50, "Games");
+        Department withoutId = new Department(null, "Music");
+
+        assertFalse(departments.upsert(renamed));
+        assertTrue(departments.upsert(withId));
+        assertTrue(departments.upsert(withoutId));
+
+        assertEquals("Comics", departments.findById(4).getName());
+        assertEquals("Games", departments.findById(50).getName());
+        assertNotNull(withoutId.getId());
+        assertEquals(6, departments.findAll().size());
+    }
+
+    private Seller seller(String name, String email, double baseSalary) {
+        return new Seller(null, name, email, new Date(631152000000L), baseSalary, books);
+    }
+
+}
@@ -0,0 +1,161 @@
+package model.dao.load;
+
+import db.TestDatabase;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import model.dao.SellerDao;
+import model.dao.cache.CachingSellerDao;
+import model.dao.cache.EvictionPolicy;
+import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.SellerDaoJDBC;
+import model.entities.Seller;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerCsvLoaderTest {
+
+    private static final String HEADER = "Name,Email,BirthDate,BaseSalary,Department\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestDatabase db;
+    private SellerDao sellerDao;
+    private SellerCsvLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        db = new TestDatabase();
+        sellerDao = new SellerDaoJDBC(db.getPool(), 1000);
+        loader = new SellerCsvLoader(db.getPool(), new DepartmentDaoJDBC(db.getPool(), 1000));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void emptyFileLoadsNothing() throws IOException {
+        LoadResult result = loader.load(csv(""));
+
+        assertEquals(0, result.getBytes());
+        assertEquals(0, result.getRowsWritten());
+        assertEquals(6, sellerDao.count());
+    }
+
+    @Test
+    public void headerOnlyFileLoadsNothing() throws IOException {
+        LoadResult result = loader.load(csv(HEADER));
+
+        assertEquals(0, result.getRowsParsed());
+        assertEquals(0, result.getRowsRejected());
+        assertEquals(6, sellerDao.count());
+    }
+
+    @Test
+    public void invalidRowsAreSkipped() throws IOException {
+        LoadResult result = loader.load(csv(HEADER
+                + "Ana,ana@gmail.com,1990-05-01,2500,Books\n"
+                + "NoDate,nodate@gmail.com,01-05-1990,2500,Books\n"
+                + "NoDepartment,nodep@gmail.com,1990-05-01,2500,Toys\n"
+                + "NoSalary,nosalary@gmail.com,1990-05-01,lots,Books\n"
+                + "Short,short@gmail.com,1990-05-01\n"
+                + ",noname@gmail.com,1990-05-01,2500,Books\n"));
+
+        assertEquals(1, result.getRowsWritten());
+        assertEquals(5, result.getRowsRejected());
+        assertEquals(5, result.getErrors().size());
+        assertEquals(7, sellerDao.count());
+    }
+
+    @Test
+    public void quotedFieldsAndCrlfLines() throws IOException {
+        LoadResult result = loader.load(csv(HEADER.replace("\n", "\r\n")
+                + "\"Silva, Ana\",ana@gmail.com,01/05/1990,2500,\"Books\"\r\n"
+                + "\"O\"\"Brien\",obrien@gmail.com,1990-05-02,3000,Computers\r\n"));
+
+        assertEquals(2, result.getRowsWritten());
+        Map<String, Seller> byEmail = byEmail();
+        assertEquals("Silva, Ana", byEmail.get("ana@gmail.com").getName());
+        assertEquals("O\"Brien", byEmail.get("obrien@gmail.com").getName());
+        assertEquals("Books", byEmail.get("ana@gmail.com").getDepartment().getName());
+    }
+
+    @Test
+    public void birthDatesAreUtcMidnight() throws IOException {
+        loader.load(csv(HEADER + "Ana,ana@gmail.com,1990-05-01,2500,Books\n"));
+
+        long expected = LocalDate.of(1990, 5, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        assertEquals(expected, byEmail().get("ana@gmail.com").getBirthDate().getTime());
+        assertEquals(1, sellerDao.countByBirthYear().getCountOfYear(1990));
+    }
+
+    @Test
+    public void existingEmailUpdatesTheSeller() throws IOException {
+        LoadResult result = loader.load(csv(HEADER + "Robert Brown,bob@gmail.com,1998-04-21,1500,Books\n"));
+
+        assertEquals(1, result.getRowsWritten());
+        assertEquals(6, sellerDao.count());
+        Seller bob = byEmail().get("bob@gmail.com");
+        assertEquals("Robert Brown", bob.getName());
+        assertEquals(1500.0, bob.getBaseSalary(), 0.0);
+    }
+
+    @Test
+    public void parsersSplitTheFile() throws IOException {
+        StringBuilder text = new StringBuilder(HEADER);
+        for (int i = 0; i < 5000; i++) {
+            text.append("Seller ").append(i).append(",seller").append(i).append("@gmail.com,1990-05-01,")
+                    .append(1000 + i).append(",Fashion\n");
+        }
+        loader.setParserThreads(4);
+        loader.setChunkSize(100);
+        loader.setRowsPerTransaction(1000);
+
+        LoadResult result = loader.load(csv(text.toString()));
+
+        assertEquals(5000, result.getRowsWritten());
+        assertEquals(0, result.getRowsRejected());
+        assertEquals(5006, sellerDao.count());
+    }
+
+    @Test
+    public void loadInvalidatesTheSellerCache() throws IOException {
+        CachingSellerDao cache = new CachingSellerDao(sellerDao, 100, EvictionPolicy.LRU);
+        assertEquals("Bob Brown", cache.findById(1).getName());
+        loader.setSellerCache(cache);
+
+        loader.load(csv(HEADER + "Robert Brown,bob@gmail.com,1998-04-21,1500,Books\n"));
+
+        assertEquals("Robert Brown", cache.findById(1).getName());
+    }
+
+    private Path csv(String text) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private Map<String, Seller> byEmail() {
+        Map<String, Seller> map = new HashMap<>();
+        for (Seller obj : sellerDao.findAll()) {
+            map.put(obj.getEmail(), obj);
+        }
+        return map;
+    }
+
+}
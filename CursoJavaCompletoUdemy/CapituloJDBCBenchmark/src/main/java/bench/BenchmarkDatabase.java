@@ -0,0 +1,148 @@
+package bench;
+
+import db.ConnectionPool;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.SellerDaoJDBC;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Temporary SQLite database created from banco/banco.sql and scaled to a
+ * given number of sellers.
+ *
+ * The script is read from the {@code banco.sql} system property, by default
+ * {@code ../banco/banco.sql} relative to this module.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class BenchmarkDatabase {
+
+    private final File file;
+    private final ConnectionPool pool;
+    private final SellerDao sellerDao;
+    private final DepartmentDao departmentDao;
+    private final List<Department> departments;
+    private final int sellers;
+
+    public BenchmarkDatabase(int sellers, int poolSize) throws IOException, SQLException {
+        file = File.createTempFile("benchmark-", ".db");
+        file.deleteOnExit();
+
+        String url = "jdbc:sqlite:" + file.getAbsolutePath();
+        runScript(url, Paths.get(System.getProperty("banco.sql", "../banco/banco.sql")));
+
+        Properties props = new Properties();
+        props.setProperty("dburl", url);
+        props.setProperty("pool.maxSize", String.valueOf(poolSize));
+        pool = new ConnectionPool(props);
+
+        sellerDao = new SellerDaoJDBC(pool, 1000);
+        departmentDao = new DepartmentDaoJDBC(pool, 1000);
+        departments = departmentDao.findAll();
+
+        int existing = sellerDao.findAll().size();
+        List<Seller> batch = new ArrayList<>();
+        for (int i = existing; i < sellers; i++) {
+            batch.add(newSeller(i));
+            if (batch.size() == 10_000) {
+                sellerDao.insertAll(batch);
+                batch.clear();
+            }
+        }
+        sellerDao.insertAll(batch);
+        this.sellers = Math.max(existing, sellers);
+    }
+
+    public Seller newSeller(int i) {
+        return new Seller(null, "Seller " + i, "seller" + i + "@gmail.com",
+                new Date(631152000000L + i * 1000L), 1000.0 + (i % 5000),
+                departments.get(i % departments.size()));
+    }
+
+    public SellerDao getSellerDao() {
+        return sellerDao;
+    }
+
+    public DepartmentDao getDepartmentDao() {
+        return departmentDao;
+    }
+
+    public List<Department> getDepartments() {
+        return departments;
+    }
+
+    public int getSellers() {
+        return sellers;
+    }
+
+    /**
+     * Closes the pool and deletes the database, with the -wal, -shm and
+     * -journal files SQLite may have left next to it.
+     */
+    public void close() {
+        pool.close();
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    /**
+     * Runs a script of statements ended by ';', ignoring failed DROPs (the
+     * tables do not exist yet in a new database). CREATE TRIGGER bodies are
+     * kept whole until their END;.
+     */
+    private static void runScript(String url, Path script) throws IOException, SQLException {
+        List<String> lines = Files.readAllLines(script, StandardCharsets.UTF_8);
+
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            StringBuilder sql = new StringBuilder();
+            boolean trigger = false;
+
+            for (String line : lines) {
+                String trimmed = line.trim().toUpperCase();
+                if (trimmed.startsWith("--") && sql.length() == 0) {
+                    continue;
+                }
+                sql.append(line).append('\n');
+                if (trimmed.startsWith("CREATE TRIGGER")) {
+                    trigger = true;
+                }
+                if (trimmed.endsWith(";") && (!trigger || trimmed.equals("END;"))) {
+                    execute(st, sql.toString());
+                    sql.setLength(0);
+                    trigger = false;
+                }
+            }
+            if (sql.toString().trim().length() > 0) {
+                execute(st, sql.toString());
+            }
+        }
+    }
+
+    private static void execute(Statement st, String sql) throws SQLException {
+        try {
+            st.execute(sql);
+        } catch (SQLException ex) {
+            if (!sql.trim().toUpperCase().startsWith("DROP")) {
+                throw ex;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and latency of {@code DepartmentDaoJDBC}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DepartmentDaoBenchmark {
+
+    private static final int THREADS = 8;
+
+    private BenchmarkDatabase database;
+    private DepartmentDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(0, THREADS);
+        dao = database.getDepartmentDao();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Department findById() {
+        List<Department> departments = database.getDepartments();
+        return dao.findById(departments.get(ThreadLocalRandom.current().nextInt(departments.size())).getId());
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public Department findByIdConcurrent() {
+        return findById();
+    }
+
+    @Benchmark
+    public List<Department> findAll() {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public Department insertAndUpdate() {
+        Department obj = new Department(null, "Bench");
+        dao.insert(obj);
+        obj.setName("Bench " + obj.getId());
+        dao.update(obj);
+        return obj;
+    }
+
+}
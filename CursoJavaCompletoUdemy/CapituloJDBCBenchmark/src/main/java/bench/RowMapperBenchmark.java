@@ -0,0 +1,169 @@
+package bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import model.dao.impl.SellerRowMapper;
+import model.entities.Department;
+import model.entities.Seller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping seller rows by column label (the old instantiateSeller, with and
+ * without its per-row println) against {@link SellerRowMapper}, which
+ * resolves the column indexes once per query, on an in-memory SQLite
+ * database. The println variant writes to a discarding stream, so it
+ * measures the logging cost without the terminal.
+ *
+ * {@code resolveMapper} is the cost of building the mapper from the
+ * ResultSetMetaData, which the DAOs now pay once per SQL text instead of on
+ * every query.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final String SQL = "SELECT "
+            + "seller.*, "
+            + "department.Name as DepName "
+            + "From seller Inner Join department "
+            + "On seller.DepartmentId = department.Id";
+
+    @Param({"1", "100000"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement query;
+    private PrintStream log;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        seed();
+        query = conn.prepareStatement(SQL);
+        log = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        query.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public long byLabelLogged() throws SQLException {
+        return scanByLabel(log);
+    }
+
+    @Benchmark
+    public long byLabel() throws SQLException {
+        return scanByLabel(null);
+    }
+
+    @Benchmark
+    public long byIndex() throws SQLException {
+        long checksum = 0;
+        try (ResultSet rs = query.executeQuery()) {
+            SellerRowMapper mapper = new SellerRowMapper(rs.getMetaData());
+            while (rs.next()) {
+                checksum += mapper.mapRow(rs).getId();
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public SellerRowMapper resolveMapper() throws SQLException {
+        try (ResultSet rs = query.executeQuery()) {
+            return new SellerRowMapper(rs.getMetaData());
+        }
+    }
+
+    private long scanByLabel(PrintStream log) throws SQLException {
+        long checksum = 0;
+        try (ResultSet rs = query.executeQuery()) {
+            while (rs.next()) {
+                Department dep = new Department();
+                dep.setId(rs.getInt("DepartmentId"));
+                dep.setName(rs.getString("DepName"));
+
+                Seller obj = new Seller();
+                obj.setId(rs.getInt("Id"));
+                obj.setName(rs.getString("Name"));
+                obj.setEmail(rs.getString("Email"));
+                obj.setBaseSalary(rs.getDouble("BaseSalary"));
+                if (log != null) {
+                    log.println(rs.getLong("BirthDate") * 1000L);
+                }
+                obj.setBirthDate(new Date(rs.getLong("BirthDate") * 1000L));
+                obj.setDepartment(dep);
+                checksum += obj.getId();
+            }
+        }
+        return checksum;
+    }
+
+    private void seed() throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("CREATE TABLE department (Id INTEGER PRIMARY KEY AUTOINCREMENT, Name TEXT)");
+            st.executeUpdate("CREATE TABLE seller (Id INTEGER PRIMARY KEY AUTOINCREMENT, Name TEXT NOT NULL,"
+                    + " Email TEXT NOT NULL, BirthDate INTEGER NOT NULL, BaseSalary REAL NOT NULL,"
+                    + " DepartmentId INTEGER NOT NULL)");
+            st.executeUpdate("INSERT INTO department (Name) VALUES"
+                    + " ('Computers'), ('Electronics'), ('Fashion'), ('Books')");
+        }
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement st = conn.prepareStatement("INSERT INTO seller"
+                + " (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES (?,?,?,?,?)")) {
+            for (int i = 0; i < rows; i++) {
+                st.setString(1, "Seller " + i);
+                st.setString(2, "seller" + i + "@gmail.com");
+                st.setLong(3, 631152000L + i);
+                st.setDouble(4, 1000 + (i % 5000));
+                st.setInt(5, 1 + (i % 4));
+                st.addBatch();
+                if (i % 10_000 == 0) {
+                    st.executeBatch();
+                }
+            }
+            st.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+}
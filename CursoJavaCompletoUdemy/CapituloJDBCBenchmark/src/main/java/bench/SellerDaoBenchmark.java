@@ -0,0 +1,213 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import model.dao.SellerDao;
+import model.dao.UpsertResult;
+import model.entities.Department;
+import model.entities.SalaryStats;
+import model.entities.Seller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and latency of {@code SellerDaoJDBC}.
+ *
+ * The *Concurrent variants run on 8 threads sharing the same pool. Writes
+ * are only measured single-threaded, as SQLite serializes writers.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SellerDaoBenchmark {
+
+    private static final int THREADS = 8;
+
+    @Param({"1000", "100000"})
+    public int sellers;
+
+    private BenchmarkDatabase database;
+    private SellerDao dao;
+    private int nextSeller;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(sellers, THREADS);
+        dao = database.getSellerDao();
+        nextSeller = database.getSellers();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(database.getSellers());
+    }
+
+    @Benchmark
+    public Seller findById() {
+        return dao.findById(randomId());
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public Seller findByIdConcurrent() {
+        return dao.findById(randomId());
+    }
+
+    /**
+     * 100 random ids read one query at a time, the N+1 pattern findByIds
+     * replaces.
+     */
+    @Benchmark
+    public int findById100() {
+        int found = 0;
+        for (Integer id : randomIds(100)) {
+            if (dao.findById(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Map<Integer, Seller> findByIds100() {
+        return dao.findByIds(randomIds(100));
+    }
+
+    private List<Integer> randomIds(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(randomId());
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<Seller> findAll() {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public List<Seller> findAllConcurrent() {
+        return dao.findAll();
+    }
+
+    /**
+     * Salary count/sum/min/max per department computed over findAll().
+     */
+    @Benchmark
+    public Map<Integer, double[]> salaryByDepartmentFromEntities() {
+        Map<Integer, double[]> stats = new HashMap<>();
+        for (Seller obj : dao.findAll()) {
+            double[] s = stats.computeIfAbsent(obj.getDepartment().getId(),
+                    k -> new double[]{0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+            double salary = obj.getBaseSalary();
+            s[0]++;
+            s[1] += salary;
+            s[2] = Math.min(s[2], salary);
+            s[3] = Math.max(s[3], salary);
+        }
+        return stats;
+    }
+
+    @Benchmark
+    public SalaryStats salaryByDepartmentFromColumns() {
+        return dao.findAllColumns().salaryByDepartment();
+    }
+
+    @Benchmark
+    public SalaryStats salaryByDepartmentInDatabase() {
+        return dao.salaryByDepartment();
+    }
+
+    @Benchmark
+    public List<Seller> findByDepartment() {
+        List<Department> departments = database.getDepartments();
+        return dao.findByDepartment(departments.get(ThreadLocalRandom.current().nextInt(departments.size())));
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public List<Seller> findByDepartmentConcurrent() {
+        return findByDepartment();
+    }
+
+    @Benchmark
+    public Seller insert() {
+        // Email is unique, so every insert needs a new seller
+        Seller obj = database.newSeller(nextSeller++);
+        dao.insert(obj);
+        return obj;
+    }
+
+    /**
+     * Upsert of an existing seller, the update path of upsert.
+     */
+    @Benchmark
+    public boolean upsertExisting() {
+        return dao.upsert(database.newSeller(randomId() - 1));
+    }
+
+    /**
+     * 100 sellers synced with findById followed by insert or update, the
+     * round trips upsertAll100 replaces.
+     */
+    @Benchmark
+    public int findThenWrite100() {
+        int inserted = 0;
+        for (int i = 0; i < 100; i++) {
+            Seller current = dao.findById(randomId());
+            if (current == null) {
+                dao.insert(database.newSeller(nextSeller++));
+                inserted++;
+            } else {
+                current.setBaseSalary(current.getBaseSalary() + 1);
+                dao.update(current);
+            }
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public UpsertResult upsertAll100() {
+        List<Seller> list = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            list.add(database.newSeller(randomId() - 1));
+        }
+        return dao.upsertAll(list);
+    }
+
+    @Benchmark
+    public Seller update() {
+        Seller obj = dao.findById(randomId());
+        obj.setBaseSalary(obj.getBaseSalary() + 1);
+        dao.update(obj);
+        return obj;
+    }
+
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import gui.util.TextRule;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of validating one keystroke in a decimal text field: the
+ * {@code String.matches} of the old {@code Constraints}, a precompiled
+ * Pattern, and {@link TextRule}. Run it with {@code -prof gc}; the
+ * gc.alloc.rate.norm of {@link #textRule} is 0 B/op.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextRuleBenchmark {
+
+    private static final String TYPED = "1234567.89";
+    private static final String REGEX = "\\d*([\\.]\\d*)?";
+    private static final Pattern PATTERN = Pattern.compile(REGEX);
+
+    private final TextRule rule = TextRule.ANY.decimal('.').fractionDigits(2).range(0, 1e9).maxLength(12);
+
+    /**
+     * Text of the field before each keystroke, and the char typed.
+     */
+    private String[] before;
+    private String[] typed;
+    private String[] after;
+
+    @Setup
+    public void setUp() {
+        before = new String[TYPED.length()];
+        typed = new String[TYPED.length()];
+        after = new String[TYPED.length()];
+        for (int i = 0; i < TYPED.length(); i++) {
+            before[i] = TYPED.substring(0, i);
+            typed[i] = TYPED.substring(i, i + 1);
+            after[i] = TYPED.substring(0, i + 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void stringMatches(Blackhole bh) {
+        for (String text : after) {
+            bh.consume(text.matches(REGEX));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void precompiledPattern(Blackhole bh) {
+        for (String text : after) {
+            bh.consume(PATTERN.matcher(text).matches());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void textRule(Blackhole bh) {
+        for (int i = 0; i < before.length; i++) {
+            String text = before[i];
+            bh.consume(rule.accepts(text, text.length(), text.length(), typed[i]));
+        }
+    }
+
+}
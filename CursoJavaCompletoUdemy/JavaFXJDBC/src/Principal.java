@@ -1,9 +1,12 @@
 
 
+import gui.MainViewController;
+import gui.util.Notifications;
+import gui.util.ViewManager;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 /**
@@ -14,13 +17,21 @@ public class Principal extends Application {
     
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("gui/MainView.fxml"));
-        
-        Scene scene = new Scene(root);
+        // the window shows at once; MainView is parsed in the background
+        Scene scene = new Scene(new StackPane(new ProgressIndicator()), 600, 400);
         
         stage.setScene(scene);
         stage.setTitle("Sample JavaFX Application");
         stage.show();
+        Notifications.install(stage);
+        
+        ViewManager viewManager = new ViewManager(8);
+        viewManager.<MainViewController>show("/gui/MainView.fxml", view -> {
+            view.getController().setViewManager(viewManager);
+            scene.setRoot(view.getRoot());
+            
+            viewManager.preload("/gui/SellerList.fxml", "/gui/DepartmentList.fxml");
+        });
     }
 
     /**
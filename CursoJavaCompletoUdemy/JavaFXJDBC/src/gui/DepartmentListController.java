@@ -0,0 +1,84 @@
+package gui;
+
+import gui.util.UiBatcher;
+import java.net.URL;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import model.dao.async.AsyncDepartmentDao;
+import model.entities.Department;
+
+/**
+ * Department table read in one query on the DAO executor.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class DepartmentListController implements Initializable {
+
+    private AsyncDepartmentDao departmentDao;
+
+    private int loadGeneration;
+
+    @FXML
+    private TableView<Department> tableViewDepartment;
+
+    @FXML
+    private TableColumn<Department, Integer> tableColumnId;
+
+    @FXML
+    private TableColumn<Department, String> tableColumnName;
+
+    @FXML
+    private Button btRefresh;
+
+    @FXML
+    private Label labelStatus;
+
+    public void setDepartmentDao(AsyncDepartmentDao departmentDao) {
+        this.departmentDao = departmentDao;
+    }
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        tableColumnId.setCellValueFactory(new PropertyValueFactory<>("id"));
+        tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
+    }
+
+    /**
+     * Reads the departments in the background; the result of a refresh still
+     * running is discarded.
+     */
+    public void updateTableView() {
+        if (departmentDao == null) {
+            throw new IllegalStateException("DepartmentDao was null");
+        }
+
+        int gen = ++loadGeneration;
+        labelStatus.setText("Loading...");
+        departmentDao.findAll().whenComplete((list, ex) -> UiBatcher.post(() -> {
+            if (gen != loadGeneration) {
+                return;
+            }
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                labelStatus.setText("Error loading departments: " + cause.getMessage());
+                return;
+            }
+            tableViewDepartment.setItems(FXCollections.observableArrayList(list));
+            labelStatus.setText(list.size() + " departments");
+        }));
+    }
+
+    @FXML
+    public void onBtRefreshAction() {
+        updateTableView();
+    }
+
+}
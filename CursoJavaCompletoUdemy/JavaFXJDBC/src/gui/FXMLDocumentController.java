@@ -5,12 +5,17 @@
  */
 package gui;
 
+import gui.util.UiBatcher;
 import java.net.URL;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Label;
+import model.dao.DaoFactory;
+import model.dao.async.AsyncSellerDao;
 
 /**
  *
@@ -21,10 +26,39 @@ public class FXMLDocumentController implements Initializable {
     @FXML
     private Label label;
     
+    private AsyncSellerDao sellerDao;
+    
+    private CompletableFuture<Long> countCall;
+    
     @FXML
     private void handleButtonAction(ActionEvent event) {
         System.out.println("You clicked me!");
-        label.setText("Hello World!");
+        
+        // a second click while counting cancels it
+        if (countCall != null && countCall.cancel(false)) {
+            label.setText("Cancelled");
+            countCall = null;
+            return;
+        }
+        
+        if (sellerDao == null) {
+            sellerDao = DaoFactory.factoryAsyncSellerDao();
+        }
+        label.setText("Counting...");
+        CompletableFuture<Long> call = sellerDao.count();
+        countCall = call;
+        call.whenComplete((count, ex) -> UiBatcher.post(() -> {
+            if (call != countCall) {
+                return;
+            }
+            countCall = null;
+            if (ex != null) {
+                label.setText((ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex)
+                        .getMessage());
+            } else {
+                label.setText("Hello World! " + count + " sellers");
+            }
+        }));
     }
     
     @Override
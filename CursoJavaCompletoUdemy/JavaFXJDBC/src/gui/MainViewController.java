@@ -1,10 +1,18 @@
 package gui;
 
+import gui.util.ViewManager;
 import java.net.URL;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.Node;
 import javafx.scene.control.MenuItem;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import model.dao.DaoFactory;
+import model.dao.async.AsyncDepartmentDao;
+import model.dao.async.AsyncSellerDao;
 
 /**
  *
@@ -12,6 +20,9 @@ import javafx.scene.control.MenuItem;
  */
 public class MainViewController implements Initializable {
 
+    @FXML
+    private VBox mainVBox;
+
     @FXML
     private MenuItem menuItemSeller;
 
@@ -21,23 +32,84 @@ public class MainViewController implements Initializable {
     @FXML
     private MenuItem menuItemAbout;
 
+    private ViewManager viewManager;
+
+    private String currentView;
+
+    private AsyncSellerDao sellerDao;
+
+    private AsyncDepartmentDao departmentDao;
+
+    public void setViewManager(ViewManager viewManager) {
+        this.viewManager = viewManager;
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
     }
 
     @FXML
     public void onMenuItemSellerAction() {
-        System.out.println("onMenuItemSellerAction");
+        loadView("/gui/SellerList.fxml", (SellerListController controller) -> {
+            controller.setSellerDao(getSellerDao());
+            controller.updateTableView();
+        });
     }
 
     @FXML
     public void onMenuItemDepartmentAction() {
-        System.out.println("onMenuItemDepartmentAction");
+        loadView("/gui/DepartmentList.fxml", (DepartmentListController controller) -> {
+            controller.setDepartmentDao(getDepartmentDao());
+            controller.updateTableView();
+        });
     }
 
     @FXML
     public void onMenuItemAboutAction() {
-        System.out.println("onMenuItemAboutAction");
+        loadView("/gui/About.fxml", x -> {
+        });
+    }
+
+    /**
+     * The DAOs of the views are created on first use and kept for the
+     * following clicks.
+     */
+    private AsyncSellerDao getSellerDao() {
+        if (sellerDao == null) {
+            sellerDao = DaoFactory.factoryAsyncSellerDao();
+        }
+        return sellerDao;
+    }
+
+    private AsyncDepartmentDao getDepartmentDao() {
+        if (departmentDao == null) {
+            departmentDao = DaoFactory.factoryAsyncDepartmentDao();
+        }
+        return departmentDao;
+    }
+
+    /**
+     * Shows the view below the menu bar. The view is parsed in the background
+     * the first time and reused afterwards, with its controller; when the
+     * user picks another view before this one is ready, it is not shown.
+     */
+    private <T> void loadView(String absoluteName, Consumer<T> initializingAction) {
+        if (viewManager == null) {
+            throw new IllegalStateException("ViewManager was null");
+        }
+
+        currentView = absoluteName;
+        viewManager.<T>show(absoluteName, view -> {
+            if (!absoluteName.equals(currentView)) {
+                return;
+            }
+
+            Node mainMenu = mainVBox.getChildren().get(0);
+            VBox.setVgrow(view.getRoot(), Priority.ALWAYS);
+            mainVBox.getChildren().setAll(mainMenu, view.getRoot());
+
+            initializingAction.accept(view.getController());
+        });
     }
 
 }
@@ -0,0 +1,114 @@
+package gui;
+
+import gui.util.Notifications;
+import gui.util.PagedList;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.ResourceBundle;
+import java.util.function.Function;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumn.CellDataFeatures;
+import javafx.scene.control.TableView;
+import model.dao.async.AsyncSellerDao;
+import model.entities.Seller;
+
+/**
+ * Seller table backed by a {@link PagedList}: only the pages around the
+ * visible rows are read and kept in memory, and every query runs on the
+ * DAO executor. Rows of pages still loading are shown blank.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerListController implements Initializable {
+
+    private AsyncSellerDao sellerDao;
+
+    private PagedList<Seller> sellers;
+
+    @FXML
+    private TableView<Seller> tableViewSeller;
+
+    @FXML
+    private TableColumn<Seller, Integer> tableColumnId;
+
+    @FXML
+    private TableColumn<Seller, String> tableColumnName;
+
+    @FXML
+    private TableColumn<Seller, String> tableColumnEmail;
+
+    @FXML
+    private TableColumn<Seller, String> tableColumnBirthDate;
+
+    @FXML
+    private TableColumn<Seller, String> tableColumnBaseSalary;
+
+    @FXML
+    private TableColumn<Seller, String> tableColumnDepartment;
+
+    @FXML
+    private Button btRefresh;
+
+    @FXML
+    private Label labelStatus;
+
+    private final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+
+    public void setSellerDao(AsyncSellerDao sellerDao) {
+        this.sellerDao = sellerDao;
+    }
+
+    @Override
+    public void initialize(URL url, ResourceBundle rb) {
+        tableColumnId.setCellValueFactory(cell -> value(cell, Seller::getId));
+        tableColumnName.setCellValueFactory(cell -> value(cell, Seller::getName));
+        tableColumnEmail.setCellValueFactory(cell -> value(cell, Seller::getEmail));
+        tableColumnBirthDate.setCellValueFactory(cell -> value(cell, obj -> formatDate(obj.getBirthDate())));
+        tableColumnBaseSalary.setCellValueFactory(cell -> value(cell,
+                obj -> String.format("%.2f", obj.getBaseSalary())));
+        tableColumnDepartment.setCellValueFactory(cell -> value(cell, obj -> obj.getDepartment().getName()));
+    }
+
+    /**
+     * Shows the sellers, or reloads them when they are already shown. Returns
+     * at once; the rows appear as their pages arrive.
+     */
+    public void updateTableView() {
+        if (sellerDao == null) {
+            throw new IllegalStateException("SellerDao was null");
+        }
+
+        if (sellers == null) {
+            sellers = new PagedList<>(new SellerPageLoader(sellerDao));
+            sellers.setOnError(ex -> Notifications.error("Error loading sellers", ex));
+            labelStatus.textProperty().bind(Bindings.createStringBinding(
+                    () -> sellers.size() + " sellers" + (sellers.isBusy() ? ", loading..." : ""),
+                    sellers, sellers.busyProperty()));
+            tableViewSeller.setItems(sellers);
+        }
+        sellers.refresh();
+    }
+
+    @FXML
+    public void onBtRefreshAction() {
+        updateTableView();
+    }
+
+    private String formatDate(Date date) {
+        return date == null ? null : sdf.format(date);
+    }
+
+    private static <R> ObservableValue<R> value(CellDataFeatures<Seller, R> cell, Function<Seller, R> getter) {
+        Seller obj = cell.getValue();
+        return obj == null ? null : new ReadOnlyObjectWrapper<>(getter.apply(obj));
+    }
+
+}
@@ -0,0 +1,40 @@
+package gui;
+
+import gui.util.PageLoader;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import model.dao.async.AsyncSellerDao;
+import model.entities.Seller;
+
+/**
+ * Pages of sellers in (Name, Id) order. A page that follows one already in
+ * memory is read with keyset pagination; only a jump, such as dragging the
+ * scroll bar, uses an OFFSET.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class SellerPageLoader implements PageLoader<Seller> {
+
+    private final AsyncSellerDao dao;
+
+    public SellerPageLoader(AsyncSellerDao dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        return dao.count();
+    }
+
+    @Override
+    public CompletableFuture<List<Seller>> load(int offset, int limit, Seller previous) {
+        if (previous != null) {
+            return dao.findPage(previous.getName(), previous.getId(), limit);
+        }
+        if (offset == 0) {
+            return dao.findPage(null, null, limit);
+        }
+        return dao.findRange(offset, limit);
+    }
+
+}
@@ -9,7 +9,19 @@ import javafx.scene.control.Alert.AlertType;
  */
 public class Alerts {
 
+    /**
+     * Posts the message to {@link Notifications}. It may be called from any
+     * thread; repeated messages are counted instead of opening a dialog each.
+     */
     public static void showAlert(String title, String header, String content, AlertType type) {
+        Notifications.show(title, header == null ? content : header + ": " + content, type);
+    }
+
+    /**
+     * Opens a dialog for a message the user must see, such as a
+     * confirmation. Call it on the JavaFX application thread.
+     */
+    public static void showDialog(String title, String header, String content, AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
         alert.setHeaderText(header);
@@ -1,34 +1,75 @@
 package gui.util;
 
+import java.util.Locale;
+import java.util.function.UnaryOperator;
 import javafx.scene.control.TextField;
+import javafx.scene.control.TextFormatter;
+import javafx.scene.control.TextFormatter.Change;
 
 /**
+ * Restricts what can be typed in a text field.
+ *
+ * Each field gets a single TextFormatter whose filter checks the edit with
+ * a {@link TextRule} before it is applied, so a rejected keystroke never
+ * reaches the text property. The setters can be combined: setting an integer
+ * field and a max length on the same field checks both in one pass.
  *
  * @author Alisson Chiquitto <chiquitto@gmail.com>
  */
 public class Constraints {
 
+    private static final String RULE_KEY = Constraints.class.getName() + ".rule";
+
     public static void setTextFieldInteger(TextField txt) {
-        txt.textProperty().addListener((obs, oldValue, newValue) -> {
-            if (newValue != null && !newValue.matches("\\d*")) {
-                txt.setText(oldValue);
-            }
-        });
+        setTextFieldRule(txt, getTextFieldRule(txt).integer());
     }
 
     public static void setTextFieldMaxLength(TextField txt, int max) {
-        txt.textProperty().addListener((obs, oldValue, newValue) -> {
-            if (newValue != null && newValue.length() > max) {
-                txt.setText(oldValue);
-            }
-        });
+        setTextFieldRule(txt, getTextFieldRule(txt).maxLength(max));
     }
 
+    /**
+     * Decimal number with '.' as the decimal separator.
+     */
     public static void setTextFieldDouble(TextField txt) {
-        txt.textProperty().addListener((obs, oldValue, newValue) -> {
-            if (newValue != null && !newValue.matches("\\d*([\\.]\\d*)?")) {
-                txt.setText(oldValue);
+        setTextFieldRule(txt, getTextFieldRule(txt).decimal('.'));
+    }
+
+    /**
+     * Decimal number with the decimal separator of the locale.
+     */
+    public static void setTextFieldDouble(TextField txt, Locale locale) {
+        setTextFieldRule(txt, getTextFieldRule(txt).decimal(locale));
+    }
+
+    /**
+     * Limits an integer or decimal field to values from min to max. Call it
+     * after setTextFieldInteger or setTextFieldDouble.
+     */
+    public static void setTextFieldRange(TextField txt, double min, double max) {
+        setTextFieldRule(txt, getTextFieldRule(txt).range(min, max));
+    }
+
+    public static void setTextFieldRule(TextField txt, TextRule rule) {
+        txt.getProperties().put(RULE_KEY, rule);
+        txt.setTextFormatter(new TextFormatter<>(filter(rule)));
+    }
+
+    /**
+     * @return the rule of the field, {@link TextRule#ANY} when it has none
+     */
+    public static TextRule getTextFieldRule(TextField txt) {
+        Object rule = txt.getProperties().get(RULE_KEY);
+        return rule instanceof TextRule ? (TextRule) rule : TextRule.ANY;
+    }
+
+    private static UnaryOperator<Change> filter(TextRule rule) {
+        return change -> {
+            if (!change.isContentChange()) {
+                return change;
             }
-        });
+            return rule.accepts(change.getControlText(), change.getRangeStart(), change.getRangeEnd(),
+                    change.getText()) ? change : null;
+        };
     }
 }
@@ -0,0 +1,172 @@
+package gui.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Pos;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+/**
+ * The panel of {@link Notifications}: one Popup per window, reused for every
+ * message, with a row per entry. Used only on the JavaFX application thread.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+class NotificationPanel {
+
+    private static final double WIDTH = 340;
+    private static final double MARGIN = 16;
+    private static final long ERROR_TTL_MS = 15000;
+    private static final long TTL_MS = 6000;
+
+    private final Window owner;
+    private final Popup popup = new Popup();
+    private final VBox box = new VBox(4);
+    private final Map<Notifications.Entry, Row> rows = new LinkedHashMap<>();
+    private final Timeline expiry;
+
+    NotificationPanel(Window owner) {
+        this.owner = owner;
+
+        box.setPrefWidth(WIDTH);
+        popup.getContent().add(box);
+        popup.setAutoHide(false);
+        popup.setHideOnEscape(false);
+
+        expiry = new Timeline(new KeyFrame(Duration.seconds(1), e -> expire()));
+        expiry.setCycleCount(Animation.INDEFINITE);
+
+        box.heightProperty().addListener((obs, oldValue, newValue) -> position());
+        owner.xProperty().addListener((obs, oldValue, newValue) -> position());
+        owner.yProperty().addListener((obs, oldValue, newValue) -> position());
+        owner.widthProperty().addListener((obs, oldValue, newValue) -> position());
+        owner.heightProperty().addListener((obs, oldValue, newValue) -> position());
+    }
+
+    /**
+     * @param entries entries on screen, oldest first
+     */
+    void update(List<Notifications.Entry> entries) {
+        Set<Notifications.Entry> current = new HashSet<>(entries);
+        rows.entrySet().removeIf(e -> {
+            if (!current.contains(e.getKey())) {
+                box.getChildren().remove(e.getValue().node);
+                return true;
+            }
+            return false;
+        });
+
+        for (Notifications.Entry entry : entries) {
+            Row row = rows.get(entry);
+            if (row == null) {
+                row = new Row(entry);
+                rows.put(entry, row);
+                box.getChildren().add(row.node);
+            }
+            row.refresh();
+        }
+
+        if (rows.isEmpty()) {
+            expiry.stop();
+            popup.hide();
+        } else {
+            expiry.play();
+            if (!popup.isShowing() && owner.isShowing()) {
+                popup.show(owner);
+                position();
+            }
+        }
+    }
+
+    private void expire() {
+        long now = System.currentTimeMillis();
+        List<Notifications.Entry> expired = new ArrayList<>();
+        for (Notifications.Entry entry : rows.keySet()) {
+            long ttl = entry.getType() == AlertType.ERROR ? ERROR_TTL_MS : TTL_MS;
+            if (now - entry.getLastAt() > ttl) {
+                expired.add(entry);
+            }
+        }
+        for (Notifications.Entry entry : expired) {
+            close(entry);
+        }
+    }
+
+    private void close(Notifications.Entry entry) {
+        Notifications.dismiss(entry);
+        Row row = rows.remove(entry);
+        if (row != null) {
+            box.getChildren().remove(row.node);
+        }
+        if (rows.isEmpty()) {
+            expiry.stop();
+            popup.hide();
+        }
+    }
+
+    private void position() {
+        if (popup.isShowing()) {
+            popup.setX(owner.getX() + owner.getWidth() - WIDTH - MARGIN);
+            popup.setY(owner.getY() + owner.getHeight() - box.getHeight() - MARGIN);
+        }
+    }
+
+    private static String style(AlertType type) {
+        switch (type) {
+            case ERROR:
+                return "-fx-background-color: #f8d7da; -fx-border-color: #f5c6cb;";
+            case WARNING:
+                return "-fx-background-color: #fff3cd; -fx-border-color: #ffeeba;";
+            default:
+                return "-fx-background-color: #d1ecf1; -fx-border-color: #bee5eb;";
+        }
+    }
+
+    private class Row {
+
+        private final Notifications.Entry entry;
+        private final HBox node;
+        private final Label count = new Label();
+        private int shown;
+
+        Row(Notifications.Entry entry) {
+            this.entry = entry;
+
+            Label text = new Label(entry.getTitle() + ": " + entry.getMessage());
+            text.setWrapText(true);
+            text.setMaxWidth(WIDTH - 80);
+            HBox.setHgrow(text, Priority.ALWAYS);
+
+            Button close = new Button("x");
+            close.setOnAction(e -> close(entry));
+
+            node = new HBox(6, text, count, close);
+            node.setAlignment(Pos.CENTER_LEFT);
+            node.setStyle(style(entry.getType()) + " -fx-padding: 6; -fx-background-radius: 4; "
+                    + "-fx-border-radius: 4;");
+        }
+
+        void refresh() {
+            int value = entry.getCount();
+            if (value != shown) {
+                count.setText(value > 1 ? "x" + value : "");
+                shown = value;
+            }
+        }
+    }
+
+}
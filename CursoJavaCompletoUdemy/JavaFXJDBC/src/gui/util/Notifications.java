@@ -0,0 +1,215 @@
+package gui.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.scene.control.Alert.AlertType;
+import javafx.stage.Window;
+
+/**
+ * Messages for the user, shown in a non-modal panel at the bottom right
+ * corner of the main window instead of one dialog each.
+ *
+ * The methods may be called from any thread and return at once. A message
+ * equal to one still on screen (same type, title and text) only increments
+ * its count, so an error repeated a thousand times is one line with
+ * "x1000". At most maxPerSecond new messages are accepted per second
+ * (default 5); the others are counted in a single "notifications
+ * suppressed" line. The panel is updated once per {@link UiBatcher} batch
+ * whatever the number of calls.
+ *
+ * Messages close by themselves some seconds after they last repeated, 15
+ * for errors and 6 for the others, or with their close button. Messages
+ * posted before {@link #install(Window)} wait for the panel, at most
+ * maxVisible of them, the newest.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class Notifications {
+
+    private static final Object FLUSH_KEY = new Object();
+
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static volatile int maxPerSecond = 5;
+    private static volatile int maxVisible = 5;
+
+    private static final AtomicLong currentSecond = new AtomicLong();
+    private static final AtomicInteger acceptedInSecond = new AtomicInteger();
+    private static final AtomicInteger suppressedSinceFlush = new AtomicInteger();
+
+    private static final LongAdder posted = new LongAdder();
+    private static final LongAdder aggregated = new LongAdder();
+    private static final LongAdder suppressed = new LongAdder();
+
+    private static NotificationPanel panel;
+
+    private Notifications() {
+    }
+
+    /**
+     * Shows the messages in a panel over owner, including the ones posted
+     * before, which close counting from now. Call it on the JavaFX
+     * application thread.
+     */
+    public static void install(Window owner) {
+        long now = System.currentTimeMillis();
+        for (Entry entry : entries.values()) {
+            entry.lastAt = now;
+        }
+        panel = new NotificationPanel(owner);
+        flush();
+    }
+
+    /**
+     * @param maxPerSecond new messages accepted per second; 0 disables the
+     * limit
+     */
+    public static void setMaxPerSecond(int maxPerSecond) {
+        Notifications.maxPerSecond = maxPerSecond;
+    }
+
+    /**
+     * @param maxVisible messages on screen; the oldest close first
+     */
+    public static void setMaxVisible(int maxVisible) {
+        Notifications.maxVisible = Math.max(1, maxVisible);
+    }
+
+    public static void show(String title, String message, AlertType type) {
+        posted.increment();
+        String key = type + "\n" + title + "\n" + message;
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            if (!acquire()) {
+                suppressed.increment();
+                suppressedSinceFlush.incrementAndGet();
+                UiBatcher.post(FLUSH_KEY, Notifications::flush);
+                return;
+            }
+            entry = entries.computeIfAbsent(key, k -> new Entry(k, type, title, message));
+        } else {
+            aggregated.increment();
+        }
+        entry.repeat(1);
+        UiBatcher.post(FLUSH_KEY, Notifications::flush);
+    }
+
+    public static void error(String title, Throwable ex) {
+        String message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+        show(title, message, AlertType.ERROR);
+    }
+
+    /**
+     * @return messages posted so far
+     */
+    public static long getPosted() {
+        return posted.sum();
+    }
+
+    /**
+     * @return messages counted in one already on screen
+     */
+    public static long getAggregated() {
+        return aggregated.sum();
+    }
+
+    /**
+     * @return messages dropped by the rate limit
+     */
+    public static long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    static void dismiss(Entry entry) {
+        entries.remove(entry.key, entry);
+    }
+
+    private static boolean acquire() {
+        int max = maxPerSecond;
+        if (max <= 0) {
+            return true;
+        }
+
+        long second = System.currentTimeMillis() / 1000;
+        long current = currentSecond.get();
+        if (second != current && currentSecond.compareAndSet(current, second)) {
+            acceptedInSecond.set(0);
+        }
+        return acceptedInSecond.incrementAndGet() <= max;
+    }
+
+    /**
+     * Runs on the JavaFX application thread.
+     */
+    private static void flush() {
+        int skipped = suppressedSinceFlush.getAndSet(0);
+        if (skipped > 0) {
+            String key = AlertType.WARNING + "\nsuppressed";
+            entries.computeIfAbsent(key, k -> new Entry(k, AlertType.WARNING, "Too many notifications",
+                    "notifications suppressed")).repeat(skipped);
+        }
+
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+        while (list.size() > maxVisible) {
+            dismiss(list.remove(0));
+        }
+
+        if (panel != null) {
+            panel.update(list);
+        }
+    }
+
+    /**
+     * A message on screen and how many times it was posted.
+     */
+    static class Entry {
+
+        private final String key;
+        private final AlertType type;
+        private final String title;
+        private final String message;
+        private final long createdAt = System.nanoTime();
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile long lastAt;
+
+        Entry(String key, AlertType type, String title, String message) {
+            this.key = key;
+            this.type = type;
+            this.title = title;
+            this.message = message;
+        }
+
+        void repeat(int times) {
+            count.addAndGet(times);
+            lastAt = System.currentTimeMillis();
+        }
+
+        AlertType getType() {
+            return type;
+        }
+
+        String getTitle() {
+            return title;
+        }
+
+        String getMessage() {
+            return message;
+        }
+
+        int getCount() {
+            return count.get();
+        }
+
+        long getLastAt() {
+            return lastAt;
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package gui.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of the rows of a {@link PagedList}. Both methods are called on the
+ * JavaFX application thread and must return at once, doing the query on
+ * another thread.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public interface PageLoader<T> {
+
+    /**
+     * @return total number of rows
+     */
+    public CompletableFuture<Long> count();
+
+    /**
+     * @param offset position of the first row
+     * @param limit maximum number of rows
+     * @param previous row at offset - 1 when it is in memory, so the loader
+     * can continue from it with keyset pagination instead of an OFFSET, or
+     * null
+     */
+    public CompletableFuture<List<T>> load(int offset, int limit, T previous);
+
+}
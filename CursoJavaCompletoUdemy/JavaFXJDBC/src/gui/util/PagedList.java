@@ -0,0 +1,302 @@
+package gui.util;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Read-only list with the size of the whole table that loads its rows in
+ * pages, on demand, for a TableView or ListView.
+ *
+ * The controls only call {@link #get(int)} for the rows on screen. A row
+ * whose page is not in memory reads as null and its page is requested from
+ * the {@link PageLoader}; when it arrives the rows are replaced and the
+ * control redraws them. At most maxPages pages are kept, the least recently
+ * read are dropped first. Requests for pages that scrolled out of view
+ * before their turn are discarded, and the newest requests run first, so
+ * dragging the scroll bar does not queue a query for every page on the way.
+ *
+ * Every method must be called on the JavaFX application thread; the loader
+ * results are handed back to it through {@link UiBatcher}, so pages that
+ * arrive together are drawn in one batch.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class PagedList<T> extends ObservableListBase<T> {
+
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final int maxPages;
+    private final int maxConcurrentLoads;
+
+    private final Map<Integer, List<T>> pages;
+    private final Deque<Integer> wanted = new ArrayDeque<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();
+
+    private int size;
+    private int generation;
+    private boolean counting;
+    private Consumer<Throwable> onError = ex -> {
+    };
+
+    private final ReadOnlyBooleanWrapper busy = new ReadOnlyBooleanWrapper(this, "busy");
+
+    public PagedList(PageLoader<T> loader) {
+        this(loader, 100, 10, 2);
+    }
+
+    /**
+     * @param pageSize rows read by each query
+     * @param maxPages pages kept in memory; it must cover the rows on screen
+     * plus one page before and one after them
+     * @param maxConcurrentLoads queries running at the same time
+     */
+    public PagedList(PageLoader<T> loader, int pageSize, int maxPages, int maxConcurrentLoads) {
+        if (pageSize < 1 || maxPages < 3 || maxConcurrentLoads < 1) {
+            throw new IllegalArgumentException("pageSize and maxConcurrentLoads must be greater than zero "
+                    + "and maxPages at least 3");
+        }
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.maxConcurrentLoads = maxConcurrentLoads;
+        this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > PagedList.this.maxPages;
+            }
+        };
+    }
+
+    /**
+     * Called on the JavaFX application thread when the count or a page
+     * fails to load. A failed page is not requested again until
+     * {@link #refresh()}.
+     */
+    public void setOnError(Consumer<Throwable> onError) {
+        this.onError = onError;
+    }
+
+    /**
+     * True while the count or any page is being loaded.
+     */
+    public ReadOnlyBooleanProperty busyProperty() {
+        return busy.getReadOnlyProperty();
+    }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return pages in memory, at most maxPages
+     */
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Reads the count again and then drops every page. The list keeps its
+     * old rows and size until the new count arrives, so the controls keep
+     * their scroll position.
+     */
+    public void refresh() {
+        int gen = ++generation;
+        wanted.clear();
+        loading.clear();
+        failed.clear();
+        counting = true;
+        updateBusy();
+
+        whenDone(loader::count, (count, ex) -> {
+            if (gen != generation) {
+                return;
+            }
+            counting = false;
+            if (ex != null) {
+                updateBusy();
+                onError.accept(ex);
+                return;
+            }
+            resize((int) Math.min(Integer.MAX_VALUE, count));
+            updateBusy();
+        });
+    }
+
+    /**
+     * @return the row, or null while its page is being loaded
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int page = index / pageSize;
+        int offset = index - page * pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+
+        // read ahead in the direction the user is scrolling
+        if (offset >= pageSize - pageSize / 4 && !pages.containsKey(page + 1)) {
+            request(page + 1);
+        } else if (offset < pageSize / 4 && page > 0 && !pages.containsKey(page - 1)) {
+            request(page - 1);
+        }
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void request(int page) {
+        if (counting || (long) page * pageSize >= size || loading.contains(page) || failed.contains(page)) {
+            return;
+        }
+        wanted.remove(page);
+        wanted.addLast(page);
+        while (wanted.size() > maxPages) {
+            wanted.pollFirst();
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (loading.size() < maxConcurrentLoads && !wanted.isEmpty()) {
+            load(wanted.pollLast());
+        }
+        updateBusy();
+    }
+
+    private void load(int page) {
+        int gen = generation;
+        int offset = page * pageSize;
+        List<T> before = page > 0 ? pages.get(page - 1) : null;
+        T previous = before != null && before.size() == pageSize ? before.get(pageSize - 1) : null;
+
+        loading.add(page);
+        whenDone(() -> loader.load(offset, pageSize, previous), (rows, ex) -> {
+            if (gen != generation) {
+                return;
+            }
+            loading.remove(page);
+            if (ex != null) {
+                failed.add(page);
+                onError.accept(ex);
+            } else {
+                loaded(page, rows);
+            }
+            dispatch();
+        });
+    }
+
+    private void loaded(int page, List<T> rows) {
+        int from = page * pageSize;
+        if (from >= size) {
+            return;
+        }
+        Map<Integer, List<T>> old = new HashMap<>(pages);
+        pages.put(page, rows);
+
+        int to = Math.min(size, from + rows.size());
+        beginChange();
+        if (to > from) {
+            nextReplace(from, to, rows(old, from, to));
+        }
+        if (rows.size() < pageSize && to < size) {
+            // rows were deleted since the count: this is the last page now
+            pages.keySet().removeIf(p -> p > page);
+            nextRemove(to, rows(old, to, size));
+            size = to;
+        }
+        endChange();
+    }
+
+    private void resize(int newSize) {
+        Map<Integer, List<T>> old = new HashMap<>(pages);
+        pages.clear();
+
+        int common = Math.min(size, newSize);
+        beginChange();
+        if (common > 0) {
+            nextReplace(0, common, rows(old, 0, common));
+        }
+        if (newSize > size) {
+            nextAdd(size, newSize);
+        } else if (newSize < size) {
+            nextRemove(newSize, rows(old, newSize, size));
+        }
+        size = newSize;
+        endChange();
+    }
+
+    /**
+     * The rows fromIndex, inclusive, to toIndex, exclusive, as they read in
+     * the pages of source; rows of pages that are not there read as null.
+     * Used as the removed rows of a change, without copying them.
+     */
+    private List<T> rows(Map<Integer, List<T>> source, int fromIndex, int toIndex) {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                int row = fromIndex + index;
+                List<T> rows = source.get(row / pageSize);
+                int offset = row % pageSize;
+                return rows != null && offset < rows.size() ? rows.get(offset) : null;
+            }
+
+            @Override
+            public int size() {
+                return toIndex - fromIndex;
+            }
+        };
+    }
+
+    private void updateBusy() {
+        busy.set(counting || !loading.isEmpty());
+    }
+
+    /**
+     * Starts the call and runs the callback on the JavaFX application thread
+     * when it completes, never inside this call, since it may come from
+     * {@link #get(int)} while a control is laying out its cells.
+     */
+    private static <R> void whenDone(Supplier<CompletableFuture<R>> call, BiConsumer<R, Throwable> callback) {
+        CompletableFuture<R> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+        future.whenComplete((result, ex) -> UiBatcher.post(() -> callback.accept(result,
+                ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex)));
+    }
+
+}
@@ -0,0 +1,97 @@
+package gui.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of the {@link UiTask}s with the same name.
+ *
+ * Each run is split in the time it waited for a thread, the time the work
+ * took and the time its result waited for the JavaFX application thread;
+ * the last one grows when the UI thread is busy.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class TaskStats {
+
+    private final String name;
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAdder deliveryNanos = new LongAdder();
+    private final LongAccumulator maxTotalNanos = new LongAccumulator(Math::max, 0);
+
+    TaskStats(String name) {
+        this.name = name;
+    }
+
+    void record(long queue, long run, long delivery, boolean error, boolean cancel) {
+        if (cancel) {
+            cancelled.increment();
+        } else if (error) {
+            failed.increment();
+        } else {
+            succeeded.increment();
+        }
+        queueNanos.add(queue);
+        runNanos.add(run);
+        deliveryNanos.add(delivery);
+        maxTotalNanos.accumulate(queue + run + delivery);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return succeeded.sum() + failed.sum() + cancelled.sum();
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    public double getAvgQueueMillis() {
+        return avgMillis(queueNanos);
+    }
+
+    public double getAvgRunMillis() {
+        return avgMillis(runNanos);
+    }
+
+    public double getAvgDeliveryMillis() {
+        return avgMillis(deliveryNanos);
+    }
+
+    /**
+     * @return longest time from start() to the callback, in milliseconds
+     */
+    public double getMaxTotalMillis() {
+        return maxTotalNanos.get() / 1e6;
+    }
+
+    private double avgMillis(LongAdder nanos) {
+        long count = getCount();
+        return count == 0 ? 0 : nanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d runs (%d failed, %d cancelled), avg queue %.1fms, run %.1fms, "
+                + "delivery %.1fms, max total %.1fms", name, getCount(), getFailed(), getCancelled(),
+                getAvgQueueMillis(), getAvgRunMillis(), getAvgDeliveryMillis(), getMaxTotalMillis());
+    }
+
+}
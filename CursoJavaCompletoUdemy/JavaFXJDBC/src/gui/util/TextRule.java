@@ -0,0 +1,222 @@
+package gui.util;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * What a text field accepts: any text, an integer or a decimal number, with
+ * an optional range and maximum length.
+ *
+ * {@link #accepts} is called on every keystroke, so it is a single pass
+ * over the chars that allocates nothing: no regex, no substring and no
+ * parsing. It accepts the texts the user may still complete, such as "" or
+ * "-", and rejects the ones that can only get further from the range, such
+ * as "1000" when the maximum is 999. {@link #isValid} checks a finished
+ * text. This class does not depend on JavaFX; {@link Constraints} applies it
+ * to a TextField.
+ *
+ * Instances are immutable: each method returns a new rule.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public final class TextRule {
+
+    /**
+     * Accepts any text.
+     */
+    public static final TextRule ANY = new TextRule(Kind.TEXT, '.', Integer.MAX_VALUE, Integer.MAX_VALUE,
+            0, Double.POSITIVE_INFINITY);
+
+    private enum Kind {
+        TEXT, INTEGER, DECIMAL
+    }
+
+    private final Kind kind;
+    private final char decimalSeparator;
+    private final int maxFractionDigits;
+    private final int maxLength;
+    private final double min;
+    private final double max;
+
+    private TextRule(Kind kind, char decimalSeparator, int maxFractionDigits, int maxLength, double min,
+            double max) {
+        this.kind = kind;
+        this.decimalSeparator = decimalSeparator;
+        this.maxFractionDigits = maxFractionDigits;
+        this.maxLength = maxLength;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Digits only, and a leading '-' when the range allows negatives.
+     */
+    public TextRule integer() {
+        return new TextRule(Kind.INTEGER, decimalSeparator, 0, maxLength, min, max);
+    }
+
+    /**
+     * Like {@link #integer()} plus one decimal separator.
+     */
+    public TextRule decimal(char separator) {
+        return new TextRule(Kind.DECIMAL, separator, Integer.MAX_VALUE, maxLength, min, max);
+    }
+
+    /**
+     * Decimal number with the decimal separator of the locale, such as ','
+     * for pt-BR.
+     */
+    public TextRule decimal(Locale locale) {
+        return decimal(DecimalFormatSymbols.getInstance(locale).getDecimalSeparator());
+    }
+
+    /**
+     * @param digits maximum number of digits after the decimal separator
+     */
+    public TextRule fractionDigits(int digits) {
+        if (kind != Kind.DECIMAL) {
+            throw new IllegalStateException("fractionDigits needs a decimal rule");
+        }
+        return new TextRule(kind, decimalSeparator, Math.max(0, digits), maxLength, min, max);
+    }
+
+    public TextRule maxLength(int maxLength) {
+        return new TextRule(kind, decimalSeparator, maxFractionDigits, Math.max(0, maxLength), min, max);
+    }
+
+    /**
+     * @param min smallest value; negatives are only accepted when it is
+     * lower than zero
+     * @param max greatest value
+     */
+    public TextRule range(double min, double max) {
+        if (kind == Kind.TEXT) {
+            throw new IllegalStateException("range needs an integer or decimal rule");
+        }
+        if (min > max) {
+            throw new IllegalArgumentException("min must not be greater than max");
+        }
+        return new TextRule(kind, decimalSeparator, maxFractionDigits, maxLength, min, max);
+    }
+
+    public char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return true when text may be typed, as a complete value or a prefix
+     * of one
+     */
+    public boolean accepts(CharSequence text) {
+        return accepts(text, text.length(), text.length(), "");
+    }
+
+    /**
+     * Checks the text a field would have after replacing the chars from
+     * start to end of before with inserted, without building it.
+     */
+    public boolean accepts(CharSequence before, int start, int end, CharSequence inserted) {
+        int length = before.length() - (end - start) + inserted.length();
+        if (length > maxLength) {
+            return false;
+        }
+        if (kind == Kind.TEXT) {
+            return true;
+        }
+        return scan(before, start, end, inserted, length, false);
+    }
+
+    /**
+     * @return true when text is a complete value in the range
+     */
+    public boolean isValid(CharSequence text) {
+        if (text.length() > maxLength) {
+            return false;
+        }
+        if (kind == Kind.TEXT) {
+            return true;
+        }
+        return scan(text, text.length(), text.length(), "", text.length(), true);
+    }
+
+    /**
+     * @return the value of a text accepted by this rule, or null when it has
+     * no digits
+     */
+    public Double parse(CharSequence text) {
+        if (kind == Kind.TEXT) {
+            throw new IllegalStateException("parse needs an integer or decimal rule");
+        }
+        String value = text.toString().trim().replace(decimalSeparator, '.');
+        if (value.isEmpty() || value.equals("-") || value.equals(".") || value.equals("-.")) {
+            return null;
+        }
+        return Double.valueOf(value);
+    }
+
+    private boolean scan(CharSequence before, int start, int end, CharSequence inserted, int length,
+            boolean complete) {
+        boolean negative = false;
+        boolean separator = false;
+        int digits = 0;
+        int fractionDigits = 0;
+        double value = 0;
+        double scale = 0.1;
+
+        for (int i = 0; i < length; i++) {
+            char c = charAt(before, start, end, inserted, i);
+            if (c >= '0' && c <= '9') {
+                int d = c - '0';
+                digits++;
+                if (separator) {
+                    if (++fractionDigits > maxFractionDigits) {
+                        return false;
+                    }
+                    value += d * scale;
+                    scale /= 10;
+                } else {
+                    value = value * 10 + d;
+                }
+            } else if (c == '-' && i == 0 && min < 0) {
+                negative = true;
+            } else if (c == decimalSeparator && kind == Kind.DECIMAL && !separator && maxFractionDigits > 0) {
+                separator = true;
+            } else {
+                return false;
+            }
+        }
+
+        double signed = negative ? -value : value;
+        // more digits only move the value away from zero
+        if (signed > max && signed > 0 || signed < min && signed < 0) {
+            return false;
+        }
+        if (complete) {
+            return digits > 0 && signed >= min && signed <= max;
+        }
+        return true;
+    }
+
+    private static char charAt(CharSequence before, int start, int end, CharSequence inserted, int i) {
+        if (i < start) {
+            return before.charAt(i);
+        }
+        int j = i - start;
+        if (j < inserted.length()) {
+            return inserted.charAt(j);
+        }
+        return before.charAt(end + j - inserted.length());
+    }
+
+    @Override
+    public String toString() {
+        return "TextRule{" + "kind=" + kind + ", decimalSeparator=" + decimalSeparator
+                + ", maxFractionDigits=" + maxFractionDigits + ", maxLength=" + maxLength
+                + ", min=" + min + ", max=" + max + '}';
+    }
+
+}
@@ -0,0 +1,133 @@
+package gui.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.application.Platform;
+
+/**
+ * Runs updates posted from any thread on the JavaFX application thread, many
+ * at a time.
+ *
+ * There is at most one Platform.runLater pending: every update posted until
+ * it runs goes into the same batch, so a background thread reporting
+ * thousands of results does not flood the event queue between two pulses.
+ * Updates posted with the same key replace each other while they wait, so a
+ * progress bar is set once per batch with the latest value. A batch stops
+ * after 8ms and leaves the rest to the next one, to keep frames at 60fps.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class UiBatcher {
+
+    private static final long BATCH_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+    private static final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private static final ConcurrentHashMap<Object, Runnable> latest = new ConcurrentHashMap<>();
+    private static final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private static final LongAdder posted = new LongAdder();
+    private static final LongAdder coalesced = new LongAdder();
+    private static final LongAdder batches = new LongAdder();
+    private static final LongAccumulator maxBatchNanos = new LongAccumulator(Math::max, 0);
+
+    private UiBatcher() {
+    }
+
+    public static void post(Runnable update) {
+        posted.increment();
+        queue.add(new Entry(null, update));
+        schedule();
+    }
+
+    /**
+     * Posts an update that replaces the one posted with the same key, if it
+     * has not run yet. It keeps the place in the batch of the first one.
+     */
+    public static void post(Object key, Runnable update) {
+        posted.increment();
+        if (latest.put(key, update) != null) {
+            coalesced.increment();
+            return;
+        }
+        queue.add(new Entry(key, null));
+        schedule();
+    }
+
+    /**
+     * @return updates posted so far
+     */
+    public static long getPosted() {
+        return posted.sum();
+    }
+
+    /**
+     * @return updates replaced by a later one with the same key
+     */
+    public static long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return Platform.runLater calls made so far
+     */
+    public static long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return longest time a batch held the JavaFX application thread, in
+     * milliseconds
+     */
+    public static double getMaxBatchMillis() {
+        return maxBatchNanos.get() / 1e6;
+    }
+
+    private static void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(UiBatcher::drain);
+        }
+    }
+
+    private static void drain() {
+        scheduled.set(false);
+        batches.increment();
+
+        long start = System.nanoTime();
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            Runnable update = entry.key == null ? entry.update : latest.remove(entry.key);
+            if (update != null) {
+                try {
+                    update.run();
+                } catch (RuntimeException ex) {
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+                }
+            }
+            if (System.nanoTime() - start > BATCH_BUDGET_NANOS) {
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+                break;
+            }
+        }
+        maxBatchNanos.accumulate(System.nanoTime() - start);
+    }
+
+    private static class Entry {
+
+        private final Object key;
+        private final Runnable update;
+
+        Entry(Object key, Runnable update) {
+            this.key = key;
+            this.update = update;
+        }
+    }
+
+}
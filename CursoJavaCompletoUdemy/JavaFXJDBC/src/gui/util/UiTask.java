@@ -0,0 +1,276 @@
+package gui.util;
+
+import db.ErrorLog;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+/**
+ * Work that runs off the JavaFX application thread, such as parsing a file,
+ * and hands its result to a callback on it. Database calls should go through
+ * the async DAOs instead, whose executor limits how many use the connection
+ * pool at once.
+ *
+ * <pre>
+ * new UiTask&lt;&gt;("Parse file", task -&gt; parser.parse(file))
+ *         .onSucceeded(rows -&gt; table.setItems(rows))
+ *         .start();
+ * </pre>
+ *
+ * The work may report progress and a message, and should check
+ * {@link #isCancelled()} between steps; a cancelled task never calls its
+ * callbacks, even if the work runs to the end. Progress, message and the
+ * result reach the UI through {@link UiBatcher}, so a task that updates its
+ * progress on every row costs at most one update per batch.
+ *
+ * Every run is recorded in the {@link TaskStats} of its name, and a run
+ * slower than {@link #setSlowTaskMs(long)} is logged as a warning by
+ * {@link ErrorLog}.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class UiTask<T> {
+
+    /**
+     * Body of a task. It runs on a background thread.
+     */
+    public interface Work<T> {
+
+        T call(UiTask<T> task) throws Exception;
+    }
+
+    private static final int MAX_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_QUEUED = 1000;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final Executor defaultExecutor = newDefaultExecutor();
+    private static final Map<String, TaskStats> stats = new ConcurrentHashMap<>();
+
+    private static volatile Executor executor = defaultExecutor;
+    private static volatile long slowTaskNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final Work<T> work;
+
+    private Consumer<? super T> onSucceeded = value -> {
+    };
+    private Consumer<Throwable> onFailed;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private volatile long submittedAt;
+    private volatile long startedAt;
+
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(this, "progress", -1);
+    private final ReadOnlyStringWrapper message = new ReadOnlyStringWrapper(this, "message", "");
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(this, "running");
+
+    public UiTask(String name, Work<T> work) {
+        this.name = name;
+        this.work = work;
+    }
+
+    /**
+     * Executor of the tasks started from now on; by default a pool of one
+     * daemon thread per processor, at least two, where at most 1000 tasks
+     * wait. A task the executor rejects fails with
+     * {@link RejectedExecutionException}.
+     */
+    public static void setExecutor(Executor executor) {
+        UiTask.executor = executor != null ? executor : defaultExecutor;
+    }
+
+    /**
+     * @param slowTaskMs runs that take longer, from start() to the callback,
+     * are logged by {@link ErrorLog}; 0 disables it
+     */
+    public static void setSlowTaskMs(long slowTaskMs) {
+        UiTask.slowTaskNanos = TimeUnit.MILLISECONDS.toNanos(slowTaskMs);
+    }
+
+    /**
+     * @return latencies of the tasks run so far, one entry per name
+     */
+    public static Collection<TaskStats> getStats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * Called on the JavaFX application thread with the result.
+     */
+    public UiTask<T> onSucceeded(Consumer<? super T> onSucceeded) {
+        this.onSucceeded = onSucceeded;
+        return this;
+    }
+
+    /**
+     * Called on the JavaFX application thread when the work throws. By
+     * default the error is posted to {@link Notifications}.
+     */
+    public UiTask<T> onFailed(Consumer<Throwable> onFailed) {
+        this.onFailed = onFailed;
+        return this;
+    }
+
+    /**
+     * Submits the work. It may be called from any thread, once.
+     */
+    public UiTask<T> start() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Task " + name + " already started");
+        }
+        submittedAt = System.nanoTime();
+        fx(() -> running.set(true));
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException ex) {
+            startedAt = System.nanoTime();
+            UiBatcher.post(() -> done(null, ex, startedAt));
+        }
+        return this;
+    }
+
+    /**
+     * Stops the task: its callbacks will not be called, and the work is
+     * skipped if it has not started yet. Work already running continues
+     * until it checks {@link #isCancelled()}.
+     *
+     * @return false if the task had already finished or been cancelled
+     */
+    public boolean cancel() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        cancelled = true;
+        fx(() -> running.set(false));
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param value between 0 and 1, or -1 when unknown
+     */
+    public void updateProgress(double value) {
+        UiBatcher.post(progress, () -> progress.set(value));
+    }
+
+    public void updateProgress(long done, long total) {
+        updateProgress(total <= 0 ? -1 : Math.min(1.0, (double) done / total));
+    }
+
+    public void updateMessage(String text) {
+        UiBatcher.post(message, () -> message.set(text));
+    }
+
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty messageProperty() {
+        return message.getReadOnlyProperty();
+    }
+
+    /**
+     * True from start() until the callback is called or the task is
+     * cancelled.
+     */
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void run() {
+        startedAt = System.nanoTime();
+        if (cancelled) {
+            UiBatcher.post(() -> done(null, null, startedAt));
+            return;
+        }
+
+        T value = null;
+        Throwable error = null;
+        try {
+            value = work.call(this);
+        } catch (Exception ex) {
+            error = ex;
+        }
+        long finishedAt = System.nanoTime();
+        T result = value;
+        Throwable failure = error;
+        UiBatcher.post(() -> done(result, failure, finishedAt));
+    }
+
+    private void done(T value, Throwable error, long finishedAt) {
+        long now = System.nanoTime();
+        boolean wasCancelled = !closed.compareAndSet(false, true);
+        long queue = startedAt - submittedAt;
+        long run = finishedAt - startedAt;
+        long delivery = now - finishedAt;
+
+        stats.computeIfAbsent(name, TaskStats::new).record(queue, run, delivery, error != null, wasCancelled);
+        long slow = slowTaskNanos;
+        if (slow > 0 && now - submittedAt > slow) {
+            ErrorLog.warn(String.format("Slow task %s: queued %.1fms, ran %.1fms, delivered %.1fms",
+                    name, queue / 1e6, run / 1e6, delivery / 1e6));
+        }
+
+        if (wasCancelled) {
+            return;
+        }
+        running.set(false);
+        if (error == null) {
+            progress.set(1);
+            onSucceeded.accept(value);
+        } else if (onFailed != null) {
+            onFailed.accept(error);
+        } else {
+            Notifications.error(name, error);
+        }
+    }
+
+    private static Executor newDefaultExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+                    Thread t = new Thread(r, "UiTask-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static void fx(Runnable update) {
+        if (Platform.isFxApplicationThread()) {
+            update.run();
+        } else {
+            UiBatcher.post(update);
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+package gui.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+/**
+ * Loads FXML views in the background and keeps the parsed ones.
+ *
+ * A view is parsed once, on a daemon thread, and its root and controller are
+ * kept until maxViews other views were used after it, so switching back to
+ * it neither parses the FXML again nor loses its state. Two requests for a
+ * view that is still loading share the same parse. The view is handed over
+ * on the JavaFX application thread, through {@link UiBatcher}.
+ *
+ * The manager also learns which view is usually shown after each one and
+ * preloads it, and {@link #preload} parses views ahead of time, for example
+ * right after the main window is shown.
+ *
+ * Nodes may be built off the JavaFX application thread as long as they are
+ * not in a showing scene, which is why the roots are only attached by the
+ * callbacks. Views whose FXML needs the FX thread, such as ones with a
+ * WebView, can not be loaded here.
+ *
+ * @author Alisson Chiquitto <chiquitto@gmail.com>
+ */
+public class ViewManager {
+
+    /**
+     * A parsed view.
+     */
+    public static class View<C> {
+
+        private final String name;
+        private final Parent root;
+        private final C controller;
+
+        View(String name, Parent root, C controller) {
+            this.name = name;
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public C getController() {
+            return controller;
+        }
+    }
+
+    private final int maxViews;
+    private final ExecutorService loader;
+    private final Map<String, CompletableFuture<View<?>>> views;
+    private final Map<String, Map<String, Integer>> next = new HashMap<>();
+    private String lastShown;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    /**
+     * @param maxViews parsed views kept
+     */
+    public ViewManager(int maxViews) {
+        if (maxViews < 1) {
+            throw new IllegalArgumentException("maxViews must be greater than zero");
+        }
+        this.maxViews = maxViews;
+        this.views = new LinkedHashMap<String, CompletableFuture<View<?>>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<View<?>>> eldest) {
+                return size() > ViewManager.this.maxViews;
+            }
+        };
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ViewManager-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Hands the view to onLoaded on the JavaFX application thread, parsing
+     * it first if it is not cached. A failure is posted to
+     * {@link Notifications}.
+     *
+     * @param name absolute resource name of the FXML, such as
+     * "/gui/SellerList.fxml"
+     */
+    public <C> void show(String name, Consumer<View<C>> onLoaded) {
+        show(name, onLoaded, ex -> Notifications.error("Error loading view", ex));
+    }
+
+    public <C> void show(String name, Consumer<View<C>> onLoaded, Consumer<Throwable> onFailed) {
+        String likelyNext = learn(name);
+
+        get(name).whenComplete((view, ex) -> UiBatcher.post(() -> {
+            if (ex != null) {
+                onFailed.accept(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            View<C> typed = (View<C>) view;
+            onLoaded.accept(typed);
+
+            if (likelyNext != null) {
+                preload(likelyNext);
+            }
+        }));
+    }
+
+    /**
+     * Parses the views in the background, if they are not cached yet.
+     */
+    public void preload(String... names) {
+        for (String name : names) {
+            get(name);
+        }
+    }
+
+    /**
+     * Drops a cached view; the next request parses it again.
+     */
+    public synchronized void evict(String name) {
+        views.remove(name);
+    }
+
+    /**
+     * @return requests served by a cached or loading view
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return FXML files parsed
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public double getAvgLoadMillis() {
+        long count = getLoads();
+        return count == 0 ? 0 : loadNanos.sum() / 1e6 / count;
+    }
+
+    private synchronized CompletableFuture<View<?>> get(String name) {
+        CompletableFuture<View<?>> future = views.get(name);
+        if (future != null && !future.isCompletedExceptionally()) {
+            hits.increment();
+            return future;
+        }
+
+        CompletableFuture<View<?>> loading = CompletableFuture.supplyAsync(() -> parse(name), loader);
+        views.put(name, loading);
+        loading.whenComplete((view, ex) -> {
+            if (ex != null) {
+                synchronized (this) {
+                    views.remove(name, loading);
+                }
+            }
+        });
+        return loading;
+    }
+
+    private View<?> parse(String name) {
+        URL url = ViewManager.class.getResource(name);
+        if (url == null) {
+            throw new CompletionException(new IOException("View not found: " + name));
+        }
+
+        long start = System.nanoTime();
+        try {
+            FXMLLoader fxmlLoader = new FXMLLoader(url);
+            Parent root = fxmlLoader.load();
+            return new View<>(name, root, fxmlLoader.getController());
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        } finally {
+            loads.increment();
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts name as the successor of the last view shown.
+     *
+     * @return the view most often shown after name, or null
+     */
+    private synchronized String learn(String name) {
+        if (lastShown != null && !lastShown.equals(name)) {
+            next.computeIfAbsent(lastShown, k -> new HashMap<>()).merge(name, 1, Integer::sum);
+        }
+        lastShown = name;
+
+        Map<String, Integer> counts = next.getOrDefault(name, Collections.emptyMap());
+        String likely = null;
+        int best = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            if (e.getValue() > best) {
+                best = e.getValue();
+                likely = e.getKey();
+            }
+        }
+        return likely;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ViewManager{" + "cached=" + views.size() + ", hits=" + getHits() + ", loads=" + getLoads()
+                + ", avgLoadMillis=" + getAvgLoadMillis() + '}';
+    }
+
+}
@@ -1,5 +1,6 @@
 DROP TABLE seller;
 DROP TABLE department;
+DROP TABLE change_log;
 
 CREATE TABLE department (
   Id INTEGER PRIMARY KEY AUTOINCREMENT,
@@ -16,6 +17,59 @@ CREATE TABLE seller (
   FOREIGN KEY (DepartmentId) REFERENCES department (id)
 );
 
+-- Keyset pagination (findPage) seeks on (Name, Id)
+CREATE INDEX idx_department_name_id ON department (Name, Id);
+CREATE INDEX idx_seller_name_id ON seller (Name, Id);
+
+-- Covering indexes of the aggregate queries (salaryByDepartment, countByBirthYear),
+-- idx_seller_department_salary also serves findByDepartment
+CREATE INDEX idx_seller_department_salary ON seller (DepartmentId, BaseSalary);
+CREATE INDEX idx_seller_birthdate ON seller (BirthDate);
+
+-- Conflict target of the upserts (upsert, upsertAll and the CSV loader)
+CREATE UNIQUE INDEX idx_seller_email ON seller (Email);
+
+-- Change data capture: the triggers log the id of every row written, in
+-- commit order of Seq, and ChangeLogTailer reads them from its last Seq.
+-- Op is I (insert), U (update) or D (delete). Rows are pruned by the tailer.
+CREATE TABLE change_log (
+  Seq INTEGER PRIMARY KEY AUTOINCREMENT,
+  TableName TEXT NOT NULL,
+  Op TEXT NOT NULL,
+  RowId INTEGER NOT NULL,
+  ChangedAt INTEGER NOT NULL DEFAULT (strftime('%s', 'now'))
+);
+
+CREATE TRIGGER trg_department_insert AFTER INSERT ON department
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('department', 'I', NEW.Id);
+END;
+
+CREATE TRIGGER trg_department_update AFTER UPDATE ON department
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('department', 'U', NEW.Id);
+END;
+
+CREATE TRIGGER trg_department_delete AFTER DELETE ON department
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('department', 'D', OLD.Id);
+END;
+
+CREATE TRIGGER trg_seller_insert AFTER INSERT ON seller
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('seller', 'I', NEW.Id);
+END;
+
+CREATE TRIGGER trg_seller_update AFTER UPDATE ON seller
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('seller', 'U', NEW.Id);
+END;
+
+CREATE TRIGGER trg_seller_delete AFTER DELETE ON seller
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('seller', 'D', OLD.Id);
+END;
+
 INSERT INTO department (Name) VALUES 
   ('Computers'),
   ('Electronics'),
@@ -28,4 +82,4 @@ INSERT INTO seller (Name, Email, BirthDate, BaseSalary, DepartmentId) VALUES
   ('Alex Grey','alex@gmail.com',strftime('%s', '1988-01-15 00:00:00'),2200,1),
   ('Martha Red','martha@gmail.com',strftime('%s', '1993-11-30 00:00:00'),3000,4),
   ('Donald Blue','donald@gmail.com',strftime('%s', '2000-01-09 00:00:00'),4000,3),
-  ('Alex Pink','bob@gmail.com',strftime('%s', '1997-03-04 00:00:00'),3000,2);
\ No newline at end of file
+  ('Alex Pink','alexpink@gmail.com',strftime('%s', '1997-03-04 00:00:00'),3000,2);
\ No newline at end of file
@@ -0,0 +1,65 @@
+-- Brings a database created by an older banco.sql, such as banco.db, up to
+-- the current schema. The data is kept and the script can be run again.
+-- Writes made before it are not in change_log.
+--   sqlite3 banco.db < migrate.sql
+
+-- Keyset pagination (findPage) seeks on (Name, Id)
+CREATE INDEX IF NOT EXISTS idx_department_name_id ON department (Name, Id);
+CREATE INDEX IF NOT EXISTS idx_seller_name_id ON seller (Name, Id);
+
+-- Covering indexes of the aggregate queries (salaryByDepartment, countByBirthYear),
+-- idx_seller_department_salary also serves findByDepartment
+CREATE INDEX IF NOT EXISTS idx_seller_department_salary ON seller (DepartmentId, BaseSalary);
+CREATE INDEX IF NOT EXISTS idx_seller_birthdate ON seller (BirthDate);
+
+-- Conflict target of the upserts (upsert, upsertAll and the CSV loader).
+-- The oldest seller keeps a duplicated email; the others get their Id after
+-- the local part, bob@gmail.com becoming bob+6@gmail.com.
+UPDATE seller SET Email = CASE
+    WHEN instr(Email, '@') > 0
+      THEN substr(Email, 1, instr(Email, '@') - 1) || '+' || Id || substr(Email, instr(Email, '@'))
+    ELSE Email || '+' || Id
+  END
+  WHERE Id > (SELECT min(s.Id) FROM seller s WHERE s.Email = seller.Email);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_seller_email ON seller (Email);
+
+-- Change data capture: the triggers log the id of every row written, in
+-- commit order of Seq, and ChangeLogTailer reads them from its last Seq.
+-- Op is I (insert), U (update) or D (delete). Rows are pruned by the tailer.
+CREATE TABLE IF NOT EXISTS change_log (
+  Seq INTEGER PRIMARY KEY AUTOINCREMENT,
+  TableName TEXT NOT NULL,
+  Op TEXT NOT NULL,
+  RowId INTEGER NOT NULL,
+  ChangedAt INTEGER NOT NULL DEFAULT (strftime('%s', 'now'))
+);
+
+CREATE TRIGGER IF NOT EXISTS trg_department_insert AFTER INSERT ON department
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('department', 'I', NEW.Id);
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_department_update AFTER UPDATE ON department
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('department', 'U', NEW.Id);
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_department_delete AFTER DELETE ON department
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('department', 'D', OLD.Id);
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_seller_insert AFTER INSERT ON seller
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('seller', 'I', NEW.Id);
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_seller_update AFTER UPDATE ON seller
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('seller', 'U', NEW.Id);
+END;
+
+CREATE TRIGGER IF NOT EXISTS trg_seller_delete AFTER DELETE ON seller
+BEGIN
+  INSERT INTO change_log (TableName, Op, RowId) VALUES ('seller', 'D', OLD.Id);
+END;